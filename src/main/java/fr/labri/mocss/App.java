@@ -67,11 +67,15 @@ public class App {
         /* Extract mixins */
         Pair<List<SslMixin>, List<SslRuleset>> statements = null;
         try {
-            List<FilteringNodesAlgorithm> filters = Lists.newArrayList(new ThresholdsBasedFiltering());
-            if (Config.getInstance().groupsFilter()) {
-                filters.add(0, new GroupsBasedFiltering());
+            // The other setting of the groups filter reuses the lattices of the first one
+            List<List<FilteringNodesAlgorithm>> variants = Lists.newArrayList();
+            variants.add(filters(Config.getInstance().groupsFilter()));
+            if (Config.getInstance().compareGroupsFilter()) {
+                variants.add(filters(!Config.getInstance().groupsFilter()));
             }
-            statements = CssToSsl.compute(cssParser.getRulesets(), filters);
+            List<Pair<List<SslMixin>, List<SslRuleset>>> variantsStatements =
+                    CssToSsl.computeVariants(cssParser.getRulesets(), variants);
+            statements = variantsStatements.get(0);
 
             Consumer<List<SslMixin>> printMixin = mixins -> {
                 int mixinsNb = mixins.size();
@@ -103,6 +107,11 @@ public class App {
                 System.out.println(">> They can be avoided by modifying value of option '--keep-semantic'.");
                 printMixin.accept(secondMixins);
             }
+            if (variantsStatements.size() > 1) {
+                System.out.println(String.format(">> %s --groups-filter: %d mixins generated",
+                        Config.getInstance().groupsFilter() ? "Without" : "With",
+                        variantsStatements.get(1).getLeft().size()));
+            }
         } catch (Exception e) {
             System.err.println("error: failed to extract mixins");
             IoUtils.printErrorAndExit(e);
@@ -130,4 +139,12 @@ public class App {
         }
     }
 
+    private static List<FilteringNodesAlgorithm> filters(boolean groupsFilter) {
+        List<FilteringNodesAlgorithm> filters = Lists.newArrayList(new ThresholdsBasedFiltering());
+        if (groupsFilter) {
+            filters.add(0, new GroupsBasedFiltering());
+        }
+        return filters;
+    }
+
 }
@@ -52,6 +52,15 @@ public class Config {
             usage = "generates mixins factorizing common properties.")
     private boolean groupsFilter = false;
 
+    @Option(name = "--groups-partition",
+            usage = "with --groups-filter, computes the concepts of each group of properties separately.")
+    private boolean groupsPartition = false;
+
+    @Option(name = "--compare-groups-filter",
+            usage = "also filters the lattices with the other setting of --groups-filter, without computing them " +
+                    "again, and prints the number of mixins it generates.")
+    private boolean compareGroupsFilter = false;
+
     public enum SemanticPreserving { full, slight, none }
     @Option(name = "--keep-semantic",
             usage = "determines whether semantics of the input file has to be preserved.\n" +
@@ -84,6 +93,80 @@ public class Config {
             metaVar = "VALUE")
     private int parametersMaxNb = 1;
 
+    public enum FcaRepresentation { sets, bitsets, sparse }
+    @Option(name = "--fca-representation",
+            usage = "data structure used to compute the concepts with the reference algorithm, " +
+                    "which is then used for every component (default: bitsets).\n" +
+                    "sets: hash sets of entities and attributes;\n" +
+                    "bitsets: dense bitsets of entities and attributes;\n" +
+                    "sparse: sorted lists of entities and attributes, for large and sparse contexts.",
+            metaVar = "VALUE")
+    private FcaRepresentation fcaRepresentation;
+
+    public enum PosetAlgorithm { auto, reference, hermes }
+    @Option(name = "--poset-algorithm",
+            usage = "algorithm used to order the concepts.\n" +
+                    "auto (default): picks hermes, reference on sparse lists or the out-of-core mode for each component, " +
+                    "from the memory they need and from the available heap, the out-of-core mode using " +
+                    "the directory of --out-of-core or the temporary directory;\n" +
+                    "reference: compares every concept with every other one;\n" +
+                    "hermes: sorts the concepts by extent size and compares them on dense bitsets.",
+            metaVar = "VALUE")
+    private PosetAlgorithm posetAlgorithm;
+
+    @Option(name = "--full-lattice",
+            usage = "computes every concept shared by at least the minimum number of children of a mixin, " +
+                    "not only the ones of the declarations and selectors.")
+    private boolean fullLattice = false;
+
+    @Option(name = "--out-of-core",
+            usage = "keeps the FCA context and the concepts in memory-mapped files of DIRECTORY "
+                    + "while ordering them, for components whose concepts do not fit in the heap. "
+                    + "With --poset-algorithm auto, only for the components which need it.",
+            metaVar = "DIRECTORY")
+    private File outOfCoreDirectory;
+
+    @Option(name = "--top-mixins",
+            usage = "only keeps the VALUE candidate mixins saving the most declarations, " +
+                    "before ordering and filtering them. 0 keeps them all. " +
+                    "Concepts are then the ones of the declarations and selectors, ordered with hermes.",
+            metaVar = "VALUE")
+    private int topMixinsNb = 0;
+
+    @Option(name = "--time-budget",
+            usage = "stops ordering the concepts after VALUE seconds and generates the output with the ones " +
+                    "already ordered, the most shared declarations first. " +
+                    "Concepts are then the ones of the declarations and selectors, ordered with hermes.",
+            metaVar = "VALUE")
+    private double timeBudget = -1;
+
+    @Option(name = "--save-poset",
+            usage = "saves the concepts and their order to FILE, to be loaded by later runs on the same input file.",
+            metaVar = "FILE")
+    private File savePosetFile;
+
+    @Option(name = "--load-poset",
+            usage = "loads the concepts and their order from FILE, saved by a previous run on the same input file. " +
+                    "Concepts missing from FILE are computed.",
+            metaVar = "FILE")
+    private File loadPosetFile;
+
+    @Option(name = "--export-context",
+            usage = "exports the clarified FCA context to FILE, in the Burmeister format if FILE ends with .cxt " +
+                    "and in a binary format otherwise.",
+            metaVar = "FILE")
+    private File exportContextFile;
+
+    @Option(name = "--threads",
+            usage = "number of threads used to compute the concepts and the lattices. " +
+                    "0 uses all the available processors.",
+            metaVar = "VALUE")
+    private int threadsNb = 1;
+
+    @Option(name = "--check-poset",
+            usage = "checks the concepts and their order against the reference algorithm on hash sets.")
+    private boolean checkPoset = false;
+
     @Option(name = "--debug",
             usage = "debug mode")
     private boolean debug = false;
@@ -133,6 +216,18 @@ public class Config {
         this.debug = debug;
     }
 
+    public void setGroupsFilter(boolean groupsFilter) {
+        this.groupsFilter = groupsFilter;
+    }
+
+    public void setGroupsPartition(boolean groupsPartition) {
+        this.groupsPartition = groupsPartition;
+    }
+
+    public void setParametersMaxNb(int parametersMaxNb) {
+        this.parametersMaxNb = parametersMaxNb;
+    }
+
     public boolean checkConfig() {
         /*
          * Input File
@@ -160,6 +255,59 @@ public class Config {
             return false;
         }
 
+        /*
+         * Poset snapshot
+         */
+        if (this.loadPosetFile != null && !this.loadPosetFile.isFile()) {
+            System.err.println("error: poset snapshot file does not exist");
+            return false;
+        }
+
+        /*
+         * Out-of-core directory
+         */
+        if (this.outOfCoreDirectory != null && !this.outOfCoreDirectory.isDirectory()) {
+            System.err.println("error: out-of-core directory does not exist");
+            return false;
+        }
+
+        /*
+         * Poset modes
+         */
+        if (this.topMixinsNb < 0) {
+            System.err.println("error: number of top mixins is negative");
+            return false;
+        }
+        boolean hermesOnly = hasTimeBudget() || this.topMixinsNb > 0;
+        if (hermesOnly && this.fullLattice) {
+            System.err.println("error: --time-budget and --top-mixins cannot be used with --full-lattice");
+            return false;
+        }
+        if (hermesOnly && this.outOfCoreDirectory != null) {
+            System.err.println("error: --time-budget and --top-mixins cannot be used with --out-of-core");
+            return false;
+        }
+        if (hermesOnly && this.posetAlgorithm == PosetAlgorithm.reference) {
+            System.err.println("error: --time-budget and --top-mixins order the concepts with hermes, "
+                    + "not with the reference algorithm");
+            return false;
+        }
+        if (this.fullLattice && this.outOfCoreDirectory != null) {
+            System.err.println("error: --full-lattice cannot be used with --out-of-core");
+            return false;
+        }
+        if (this.outOfCoreDirectory != null && this.posetAlgorithm == PosetAlgorithm.reference) {
+            System.err.println("error: --out-of-core orders the concepts with hermes, not with the reference algorithm");
+            return false;
+        }
+        if (this.fcaRepresentation != null && (this.posetAlgorithm == PosetAlgorithm.auto
+                || this.posetAlgorithm == PosetAlgorithm.hermes || this.fullLattice || this.outOfCoreDirectory != null
+                || hermesOnly)) {
+            System.err.println("error: --fca-representation is only used by the reference algorithm, "
+                    + "it cannot be used with the other poset algorithms and modes");
+            return false;
+        }
+
         return true;
     }
 
@@ -179,6 +327,14 @@ public class Config {
         return this.groupsFilter;
     }
 
+    public boolean groupsPartition() {
+        return this.groupsFilter && this.groupsPartition;
+    }
+
+    public boolean compareGroupsFilter() {
+        return this.compareGroupsFilter;
+    }
+
     public boolean preserveSemantic() {
         return this.semantic.equals(SemanticPreserving.full) ||
                 this.semantic.equals(SemanticPreserving.slight);
@@ -204,6 +360,60 @@ public class Config {
         return this.parametersMaxNb;
     }
 
+    public FcaRepresentation fcaRepresentation() {
+        return this.fcaRepresentation != null ? this.fcaRepresentation : FcaRepresentation.bitsets;
+    }
+
+    public PosetAlgorithm posetAlgorithm() {
+        return this.posetAlgorithm != null ? this.posetAlgorithm : PosetAlgorithm.auto;
+    }
+
+    // The planner picks the algorithm of each component, unless another option already forces one
+    public boolean plannedPosetAlgorithm() {
+        return this.posetAlgorithm == PosetAlgorithm.auto
+                || (this.posetAlgorithm == null && this.fcaRepresentation == null && this.outOfCoreDirectory == null);
+    }
+
+    public boolean fullLattice() {
+        return this.fullLattice;
+    }
+
+    public File outOfCoreDirectory() {
+        return this.outOfCoreDirectory;
+    }
+
+    public int topMixinsNb() {
+        return this.topMixinsNb;
+    }
+
+    public boolean hasTimeBudget() {
+        return this.timeBudget >= 0;
+    }
+
+    public double timeBudget() {
+        return this.timeBudget;
+    }
+
+    public File savePosetFile() {
+        return this.savePosetFile;
+    }
+
+    public File loadPosetFile() {
+        return this.loadPosetFile;
+    }
+
+    public File exportContextFile() {
+        return this.exportContextFile;
+    }
+
+    public int threadsNb() {
+        return this.threadsNb > 0 ? this.threadsNb : Runtime.getRuntime().availableProcessors();
+    }
+
+    public boolean checkPoset() {
+        return this.checkPoset;
+    }
+
     public boolean debug() {
         return this.debug;
     }
@@ -22,10 +22,15 @@ package fr.labri.mocss.algo;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import fr.labri.mocss.Config;
 import fr.labri.mocss.algo.fca.*;
 import fr.labri.mocss.algo.filters.FilteringNodesAlgorithm;
 import fr.labri.mocss.model.*;
+import fr.labri.mocss.model.css.CSSProperties;
+import fr.labri.mocss.model.css.CSSPropertyGroups;
 import fr.labri.mocss.model.css.CssRuleset;
 import fr.labri.mocss.model.ssl.SslMixin;
 import fr.labri.mocss.model.ssl.SslMixinCall;
@@ -34,11 +39,20 @@ import fr.labri.mocss.model.ssl.SslStatement;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -47,23 +61,133 @@ public class CssToSsl {
 
     private static long mixinsNb = 0;
 
+    // Time out of the concepts ordering, and numbers of ordered and candidate concepts when they are bounded
+    private static BooleanSupplier timeOut = () -> false;
+    private static final AtomicLong orderedConceptsNb = new AtomicLong();
+    private static final AtomicLong candidateConceptsNb = new AtomicLong();
+
+    // Posets loaded from and saved to snapshot files, null when the options are not set
+    private static PosetSnapshot loadedPosets;
+    private static PosetSnapshot savedPosets;
+    private static final AtomicLong loadedPosetsNb = new AtomicLong();
+    private static final AtomicLong computedPosetsNb = new AtomicLong();
+
+    // Strategies picked by the execution planner, and plan of the largest component
+    private static final Map<ExecutionPlan.Strategy, Long> plannedStrategies = new ConcurrentHashMap<>();
+    private static final AtomicReference<ExecutionPlan> largestPlan = new AtomicReference<>();
+
     public static Pair<List<SslMixin>, List<SslRuleset>> compute(List<CssRuleset> rulesets,
                                                                  List<FilteringNodesAlgorithm> filteringAlgorithms) throws Exception {
-        Context fcaContext = buildContext(rulesets);
+        return computeVariants(rulesets, Collections.singletonList(filteringAlgorithms)).get(0);
+    }
 
-        Gsh gsh = new Gsh(fcaContext);
-        gsh.compute();
+    /*
+     * Mixins of several configurations of filters, each giving the same mixins as a separate computation.
+     * The lattices are computed once, and each configuration filters copies of them, except the last one
+     * which filters the lattices themselves.
+     */
+    public static List<Pair<List<SslMixin>, List<SslRuleset>>> computeVariants(
+            List<CssRuleset> rulesets, List<List<FilteringNodesAlgorithm>> variants) throws Exception {
+        // The whole context is only kept while it is pruned, the pruning keeps all its entities
+        ContextPruning pruning = new ContextPruning(buildContext(rulesets));
+        // Attributes of different groups are not merged, so that each group can be split from the others
+        ContextClarification clarification = Config.getInstance().groupsPartition()
+                ? new ContextClarification(pruning.getContext(), CssToSsl::propertyGroup)
+                : new ContextClarification(pruning.getContext());
+        List<Context> components = new ContextComponents(clarification.getContext()).getComponents();
+        System.out.println(String.format("FCA context: {entities: %d; attributes: %d; pruned attributes: %d; "
+                        + "clarified entities: %d; clarified attributes: %d; components: %d}",
+                pruning.getContext().getEntities().size(),
+                pruning.getContext().getAttributes().size() + pruning.prunedAttributesNb(),
+                pruning.prunedAttributesNb(),
+                clarification.getContext().getEntities().size(),
+                clarification.getContext().getAttributes().size(),
+                components.size()));
+        if (Config.getInstance().exportContextFile() != null) {
+            ContextFormats.write(clarification.getContext(), Config.getInstance().exportContextFile());
+        }
 
-        Lattice lattice = generateLatticeFromConcepts(gsh.getConcepts());
-        removedUnusedProperties(lattice);
+        orderedConceptsNb.set(0);
+        candidateConceptsNb.set(0);
+        loadedPosetsNb.set(0);
+        computedPosetsNb.set(0);
+        plannedStrategies.clear();
+        largestPlan.set(null);
+        HashCode posetKey = posetKey(rulesets);
+        loadedPosets = null;
+        if (Config.getInstance().loadPosetFile() != null) {
+            loadedPosets = PosetSnapshot.read(Config.getInstance().loadPosetFile());
+            if (!loadedPosets.getKey().equals(posetKey)) {
+                System.out.println("info: poset snapshot does not match the input file or the options, "
+                        + "concepts are computed again");
+                loadedPosets = null;
+            }
+        }
+        savedPosets = Config.getInstance().savePosetFile() != null ? new PosetSnapshot(posetKey) : null;
+        if (Config.getInstance().hasTimeBudget()) {
+            long deadline = System.nanoTime() + (long) (Config.getInstance().timeBudget() * 1e9);
+            timeOut = () -> System.nanoTime() - deadline >= 0;
+        } else {
+            timeOut = () -> false;
+        }
 
-        if (Config.getInstance().noDuplicatesInRuleset()) {
-            spanningArborescence(lattice);
+        // Components share no selector nor declaration, so their lattices are computed and filtered independently
+        int threadsNb = Config.getInstance().threadsNb();
+        ForkJoinPool pool = threadsNb > 1 ? new ForkJoinPool(threadsNb) : null;
+        List<Pair<List<SslMixin>, List<SslRuleset>>> results = Lists.newArrayList();
+        try {
+            List<Lattice> lattices = ParallelTasks.map(pool, components.size(), i ->
+                    computeLattice(components.get(i), pruning, clarification, pool)
+            );
+            printPosetsInfo();
+
+            for (int variant = 0; variant < variants.size(); variant++) {
+                List<FilteringNodesAlgorithm> filteringAlgorithms = variants.get(variant);
+                boolean lastVariant = variant == variants.size() - 1;
+                results.add(generateCode(ParallelTasks.map(pool, lattices.size(), i -> {
+                    Lattice lattice = lastVariant ? lattices.get(i) : lattices.get(i).copy();
+                    filteringAlgorithms.forEach(algorithm -> algorithm.filter(lattice));
+                    return lattice;
+                })));
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        return results;
+    }
+
+    private static void printPosetsInfo() throws IOException {
+        if (Config.getInstance().hasTimeBudget() || Config.getInstance().topMixinsNb() > 0) {
+            System.out.println(String.format("Poset: {ordered concepts: %d; candidate concepts: %d; explored: %.1f%%}",
+                    orderedConceptsNb.get(),
+                    candidateConceptsNb.get(),
+                    candidateConceptsNb.get() == 0 ? 100.0 : 100.0 * orderedConceptsNb.get() / candidateConceptsNb.get()));
         }
 
-        filteringAlgorithms.forEach(algorithm -> algorithm.filter(lattice));
+        if (largestPlan.get() != null) {
+            System.out.println(String.format("Execution plan: {hermes: %d; sparse: %d; out-of-core: %d}",
+                    plannedStrategies.getOrDefault(ExecutionPlan.Strategy.hermes, 0L),
+                    plannedStrategies.getOrDefault(ExecutionPlan.Strategy.sparse, 0L),
+                    plannedStrategies.getOrDefault(ExecutionPlan.Strategy.outOfCore, 0L)));
+            System.out.println("Largest component: " + largestPlan.get());
+        }
+        if (Config.getInstance().loadPosetFile() != null || savedPosets != null) {
+            System.out.println(String.format("Poset snapshot: {loaded posets: %d; computed posets: %d}",
+                    loadedPosetsNb.get(), computedPosetsNb.get()));
+        }
+        if (savedPosets != null) {
+            savedPosets.write(Config.getInstance().savePosetFile());
+        }
+    }
+
+    // The names of the mixins are numbered from 1 for each call
+    private static Pair<List<SslMixin>, List<SslRuleset>> generateCode(List<Lattice> lattices) {
+        mixinsNb = 0;
+        List<SslStatement> statements = Lists.newArrayList();
+        lattices.forEach(lattice -> statements.addAll(generateStatements(lattice)));
 
-        List<SslStatement> statements = generateStatements(lattice);
         List<SslMixin> generatedMixins = statements.stream()
                 .filter(statement -> statement instanceof SslMixin)
                 .map(mixin -> (SslMixin) mixin)
@@ -82,13 +206,33 @@ public class CssToSsl {
         return new ImmutablePair<>(generatedMixins, generatedRulesets);
     }
 
+    // Hash of the rulesets and of the options changing the concepts, keying the poset snapshots
+    private static HashCode posetKey(List<CssRuleset> rulesets) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putBoolean(Config.getInstance().fullLattice())
+                .putInt(Config.getInstance().fullLattice() ? Config.getInstance().childrenMinNb() : 0)
+                .putInt(Config.getInstance().topMixinsNb())
+                .putDouble(Config.getInstance().hasTimeBudget() ? Config.getInstance().timeBudget() : -1);
+        rulesets.forEach(ruleset -> {
+            hasher.putString(ruleset.getSelector().getSelector(), StandardCharsets.UTF_8)
+                    .putInt(ruleset.getPosition().getLineNumber());
+            ruleset.getDeclarations().forEach(declaration ->
+                    hasher.putByte((byte) 0).putString(declaration.getIdentifier(), StandardCharsets.UTF_8)
+            );
+            hasher.putByte((byte) 1);
+        });
+        return hasher.hash();
+    }
+
     private static Context buildContext(List<CssRuleset> rulesets) {
+        Set<Property> parameterizableProperties = parameterizableProperties(rulesets);
         Context context = new Context();
         rulesets.forEach(ruleset -> {
             Selector selector = ruleset.getSelector();
             List<DeclarationConcrete> declarations = ruleset.getDeclarations();
             List<Property> properties = declarations.stream()
                     .map(declaration -> new Property(declaration.getProperty()))
+                    .filter(parameterizableProperties::contains)
                     .collect(Collectors.toList());
 
             FcaElement fcaElementSelector = new FcaElement(selector);
@@ -107,40 +251,245 @@ public class CssToSsl {
         return context;
     }
 
-    private static Lattice generateLatticeFromConcepts(Set<Concept> concepts) {
-        Set<Node> nodes = Sets.newHashSet();
-        Map<Concept, Node> mapping = Maps.newHashMap();
+    /*
+     * A property can only become a parameter if it is used with at least two values:
+     * otherwise its abstract declaration is always removed by removedUnusedProperties.
+     */
+    private static Set<Property> parameterizableProperties(List<CssRuleset> rulesets) {
+        if (Config.getInstance().parametersMaxNb() == 0) {
+            return Collections.emptySet();
+        }
+        Map<Property, Set<String>> values = Maps.newHashMap();
+        rulesets.forEach(ruleset -> ruleset.getDeclarations().forEach(declaration ->
+                values.computeIfAbsent(declaration.getPropertyReference(), property -> Sets.newHashSet())
+                        .add(declaration.getValue())
+        ));
+        return values.entrySet().stream()
+                .filter(entry -> entry.getValue().size() > 1)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    // Lattice of a component, before its filters
+    private static Lattice computeLattice(Context context, ContextPruning pruning, ContextClarification clarification,
+                                          ForkJoinPool pool) {
+        Lattice lattice;
+        if (Config.getInstance().groupsPartition()) {
+            lattice = generateLatticeFromGroups(context, pruning, clarification, pool);
+        } else {
+            lattice = generateLatticeFromConcepts(computeConcepts(context, clarification, pool), pruning, clarification);
+        }
+        removedUnusedProperties(lattice);
+
+        if (Config.getInstance().noDuplicatesInRuleset()) {
+            spanningArborescence(lattice);
+        }
+        return lattice;
+    }
+
+    private static Set<Concept> computeConcepts(Context context, ContextClarification clarification,
+                                                ForkJoinPool pool) {
+        Set<Concept> concepts = loadedPosets != null ? loadedPosets.get(context) : null;
+        if (concepts == null) {
+            concepts = computePoset(context, clarification, pool);
+            computedPosetsNb.incrementAndGet();
+        } else {
+            loadedPosetsNb.incrementAndGet();
+        }
+        if (savedPosets != null) {
+            savedPosets.put(context, concepts);
+        }
+        return concepts;
+    }
+
+    private static Set<Concept> computePoset(Context context, ContextClarification clarification,
+                                             ForkJoinPool pool) {
+        GshAlgorithm gsh = gshAlgorithm(context, clarification, pool);
+        gsh.compute();
+
+        boolean complete = true;
+        if (gsh instanceof HermesGsh) {
+            HermesGsh hermesGsh = (HermesGsh) gsh;
+            orderedConceptsNb.addAndGet(hermesGsh.getConcepts().size());
+            candidateConceptsNb.addAndGet(hermesGsh.candidatesNb());
+            complete = hermesGsh.isComplete();
+        }
+
+        if (Config.getInstance().checkPoset() && complete && !(gsh instanceof Gsh) && !(gsh instanceof FcboLattice)) {
+            Gsh referenceGsh = new Gsh(context);
+            referenceGsh.compute();
+            if (!GshCheck.isSamePoset(gsh.getConcepts(), referenceGsh.getConcepts())) {
+                throw new IllegalStateException("concepts differ from the ones of the reference algorithm");
+            }
+        }
+        return gsh.getConcepts();
+    }
+
+    private static GshAlgorithm gshAlgorithm(Context context, ContextClarification clarification,
+                                             ForkJoinPool pool) {
+        if (Config.getInstance().hasTimeBudget() || Config.getInstance().topMixinsNb() > 0) {
+            return new HermesGsh(new BitSetContext(context), pool, timeOut,
+                    Config.getInstance().topMixinsNb(), concept -> savedDeclarationsNb(concept, clarification));
+        }
+        if (Config.getInstance().fullLattice()) {
+            return new FcboLattice(new BitSetContext(context), Config.getInstance().childrenMinNb(), pool);
+        }
+        if (Config.getInstance().plannedPosetAlgorithm()) {
+            ExecutionPlan plan = ExecutionPlan.of(context, ExecutionPlan.availableBytes(Config.getInstance().threadsNb()));
+            plannedStrategies.merge(plan.getStrategy(), 1L, Long::sum);
+            largestPlan.accumulateAndGet(plan, (largest, other) ->
+                    largest == null || other.relationsNb() > largest.relationsNb() ? other : largest
+            );
+            switch (plan.getStrategy()) {
+                case sparse:
+                    return new SparseGsh(new SparseContext(context), pool);
+                case outOfCore:
+                    File directory = Config.getInstance().outOfCoreDirectory() != null
+                            ? Config.getInstance().outOfCoreDirectory()
+                            : new File(System.getProperty("java.io.tmpdir"));
+                    return new MappedGsh(new MappedContext(context, directory), pool);
+                default:
+                    return new HermesGsh(new BitSetContext(context), pool);
+            }
+        }
+        if (Config.getInstance().outOfCoreDirectory() != null) {
+            return new MappedGsh(new MappedContext(context, Config.getInstance().outOfCoreDirectory()), pool);
+        }
+        if (Config.getInstance().posetAlgorithm() == Config.PosetAlgorithm.hermes) {
+            return new HermesGsh(new BitSetContext(context), pool);
+        }
+        switch (Config.getInstance().fcaRepresentation()) {
+            case bitsets:
+                return new BitSetGsh(new BitSetContext(context), pool);
+            case sparse:
+                return new SparseGsh(new SparseContext(context), pool);
+            default:
+                return new Gsh(context, pool);
+        }
+    }
+
+    /*
+     * Declarations saved by the mixin of a concept, written once instead of once per selector,
+     * minus the values passed to its parameters by each selector
+     */
+    private static long savedDeclarationsNb(Concept concept, ContextClarification clarification) {
+        long selectorsNb = clarification.expandEntities(concept.getExtents()).size();
+        Set<FcaElement> intents = clarification.expandAttributes(concept.getIntents());
+        long parametersNb = intents.stream().filter(attribute -> attribute.getElement() instanceof Property).count();
+        return intents.size() * (selectorsNb - 1) - parametersNb * selectorsNb;
+    }
+
+    private static Lattice generateLatticeFromConcepts(Set<Concept> concepts, ContextPruning pruning,
+                                                       ContextClarification clarification) {
+        Lattice.Builder builder = new Lattice.Builder();
+        Map<Concept, Integer> indexes = new IdentityHashMap<>();
         int i = 0;
         for (Concept concept : concepts) {
-            Set<Selector> selectors = concept.getSimplifiedExtents().stream()
-                    .map(extent -> (Selector) extent.getElement())
-                    .collect(Collectors.toSet());
-            Set<Selector> allSelectors = concept.getExtents().stream()
-                    .map(extent -> (Selector) extent.getElement())
-                    .collect(Collectors.toSet());
-            Set<Declaration> declarations = concept.getIntents().stream()
-                    .map(intent -> {
-                        ElementWithIdentifier fcaElement = intent.getElement();
-                        assert fcaElement instanceof DeclarationConcrete || fcaElement instanceof Property;
-                        if (fcaElement instanceof DeclarationConcrete) {
-                            return (DeclarationConcrete) fcaElement;
-                        } else {
-                            Property property = (Property) fcaElement;
-                            return new DeclarationAbstract(property, new ValueAbstract(property.getProperty()));
-                        }
-                    })
-                    .collect(Collectors.toSet());
-            Node node = new Node(i++, selectors, allSelectors, declarations);
-            nodes.add(node);
-            mapping.put(concept, node);
+            Set<Selector> selectors = toSelectors(clarification.expandEntities(concept.getSimplifiedExtents()));
+            Set<FcaElement> extents = clarification.expandEntities(concept.getExtents());
+            Set<Selector> allSelectors = toSelectors(extents);
+            Set<Declaration> declarations = toDeclarations(
+                    pruning.expandAttributes(extents, clarification.expandAttributes(concept.getIntents())));
+            indexes.put(concept, builder.addNode(i++, selectors, allSelectors, declarations));
         }
 
-        concepts.forEach(concept -> {
-            Node node = mapping.get(concept);
-            concept.getParents().forEach(parent -> node.getParents().add(mapping.get(parent)));
-            concept.getChildren().forEach(child -> node.getChildren().add(mapping.get(child)));
+        concepts.forEach(concept -> concept.getParents().forEach(parent ->
+                builder.addEdge(indexes.get(parent), indexes.get(concept))
+        ));
+        return builder.build();
+    }
+
+    /*
+     * Computes the concepts of each group of properties separately, so that no concept mixes groups;
+     * the clarification kept the attributes of different groups apart, so each one has a single group.
+     * Concepts of the groups only hold factorized declarations: each entity gets its own node,
+     * with all its declarations, whose parents are its object concepts in the groups.
+     */
+    private static Lattice generateLatticeFromGroups(Context context, ContextPruning pruning,
+                                                     ContextClarification clarification, ForkJoinPool pool) {
+        Map<CSSPropertyGroups, Context> groupContexts = Maps.newLinkedHashMap();
+        context.getAttributes().forEach(attribute -> {
+            Context groupContext = groupContexts.computeIfAbsent(propertyGroup(attribute), group -> new Context());
+            groupContext.addAttribute(attribute);
+            context.getEntities(attribute).forEach(entity -> {
+                groupContext.addEntity(entity);
+                groupContext.addRelation(entity, attribute);
+            });
         });
-        return new Lattice(nodes);
+        List<Context> contexts = Lists.newArrayList(groupContexts.values());
+        List<Set<Concept>> groupConcepts = ParallelTasks.map(pool, contexts.size(), i ->
+                computeConcepts(contexts.get(i), clarification, pool)
+        );
+
+        Lattice.Builder builder = new Lattice.Builder();
+        Map<FcaElement, List<Integer>> entityParents = Maps.newHashMap();
+        int i = 0;
+        for (Set<Concept> concepts : groupConcepts) {
+            // A concept of a single entity is merged into the node of the entity
+            Map<Concept, Integer> indexes = new IdentityHashMap<>();
+            for (Concept concept : concepts) {
+                if (concept.getExtents().size() > 1) {
+                    Set<Declaration> declarations = toDeclarations(clarification.expandAttributes(concept.getIntents()));
+                    Set<Selector> allSelectors = toSelectors(clarification.expandEntities(concept.getExtents()));
+                    indexes.put(concept, builder.addNode(i++, Sets.newHashSet(), allSelectors, declarations));
+                }
+            }
+            concepts.forEach(concept -> {
+                Integer index = indexes.get(concept);
+                if (index == null) {
+                    FcaElement entity = concept.getExtents().iterator().next();
+                    concept.getParents().forEach(parent ->
+                            entityParents.computeIfAbsent(entity, key -> Lists.newArrayList()).add(indexes.get(parent))
+                    );
+                } else {
+                    concept.getParents().forEach(parent -> builder.addEdge(indexes.get(parent), index));
+                    concept.getSimplifiedExtents().forEach(entity ->
+                            entityParents.computeIfAbsent(entity, key -> Lists.newArrayList()).add(index)
+                    );
+                }
+            });
+        }
+
+        for (FcaElement entity : context.getEntities()) {
+            Set<FcaElement> extents = clarification.expandEntities(Collections.singleton(entity));
+            Set<Selector> selectors = toSelectors(extents);
+            Set<Declaration> declarations = toDeclarations(
+                    pruning.expandAttributes(extents, clarification.expandAttributes(context.getAttributes(entity))));
+            int index = builder.addNode(i++, selectors, Sets.newHashSet(selectors), declarations);
+            entityParents.getOrDefault(entity, Collections.emptyList())
+                    .forEach(parent -> builder.addEdge(parent, index));
+        }
+        return builder.build();
+    }
+
+    // Group of the property of an attribute, null for unknown properties
+    private static CSSPropertyGroups propertyGroup(FcaElement attribute) {
+        ElementWithIdentifier element = attribute.getElement();
+        String property = element instanceof Property
+                ? ((Property) element).getProperty()
+                : ((Declaration) element).getProperty();
+        return CSSProperties.groupOf(property);
+    }
+
+    private static Set<Selector> toSelectors(Set<FcaElement> entities) {
+        return entities.stream()
+                .map(entity -> (Selector) entity.getElement())
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<Declaration> toDeclarations(Set<FcaElement> attributes) {
+        return attributes.stream()
+                .map(attribute -> {
+                    ElementWithIdentifier fcaElement = attribute.getElement();
+                    assert fcaElement instanceof DeclarationConcrete || fcaElement instanceof Property;
+                    if (fcaElement instanceof DeclarationConcrete) {
+                        return (DeclarationConcrete) fcaElement;
+                    } else {
+                        Property property = (Property) fcaElement;
+                        return new DeclarationAbstract(property, new ValueAbstract(property.getProperty()));
+                    }
+                })
+                .collect(Collectors.toSet());
     }
 
     private static void removedUnusedProperties(Lattice lattice) {
@@ -172,7 +521,7 @@ public class CssToSsl {
             Node selectedParent = null;
             int inheritedDeclarationsMaxNb = -1;
             for (Node parent : parents) {
-                int inheritedDeclarationsNb = parent.getAllParents().stream()
+                int inheritedDeclarationsNb = lattice.getAllParents(parent).stream()
                         .mapToInt(concept -> concept.getSimplifiedDeclarations().size())
                         .sum();
                 if (inheritedDeclarationsNb > inheritedDeclarationsMaxNb) {
@@ -184,7 +533,8 @@ public class CssToSsl {
         };
 
         lattice.getRoots().forEach(root -> {
-            Set<Node> greatChildren = root.getAllChildren();
+            Set<Node> greatChildren = Sets.newHashSet();
+            greatChildren.addAll(lattice.getAllChildren(root));
             greatChildren.removeAll(root.getChildren());
             greatChildren.remove(root);
             greatChildren.stream()
@@ -195,25 +545,19 @@ public class CssToSsl {
                         Set<Node> otherParents = Sets.newHashSet(node.getParents());
                         otherParents.remove(selectedParent);
                         otherParents.stream()
-                                .filter(otherParent -> otherParent.getAllParents().contains(root))
-                                .forEach(otherParent -> {
-                                    otherParent.getChildren().remove(node);
-                                    node.getParents().remove(otherParent);
-                                });
+                                .filter(otherParent -> lattice.isAncestor(root, otherParent))
+                                .forEach(otherParent -> lattice.removeEdge(otherParent, node));
                     });
         });
 
         // Remove unused nodes
         List<Node> orderedNodes = lattice.topologicalOrder();
         Collections.reverse(orderedNodes);
-        List<Node> oldNodes = Lists.newArrayList();
         orderedNodes.forEach(node -> {
             if (node.getChildren().isEmpty() && node.getSelectors().isEmpty()) {
-                node.getParents().forEach(parent -> parent.getChildren().remove(node));
-                oldNodes.add(node);
+                lattice.removeNode(node);
             }
         });
-        lattice.getNodes().removeAll(oldNodes);
     }
 
     private static List<SslStatement> generateStatements(Lattice lattice) {
@@ -221,13 +565,8 @@ public class CssToSsl {
         Map<Node, SslMixin> mappingNodeMixin = Maps.newHashMap();
 
         lattice.topologicalOrder().forEach(node -> {
-            Set<Property> properties = node.getSimplifiedDeclarations().stream()
-                    .filter(declaration -> declaration instanceof DeclarationAbstract)
-                    .map(declaration -> declaration.getPropertyReference())
-                    .collect(Collectors.toSet());
-            Set<Declaration> declarations = node.getSimplifiedDeclarations().stream()
-                    .filter(declaration -> declaration instanceof DeclarationConcrete)
-                    .collect(Collectors.toSet());
+            Set<Property> properties = node.getParameters();
+            Set<Declaration> declarations = Sets.newHashSet(node.getSimplifiedConcreteDeclarations());
             Map<Property, Declaration> declarationsData = node.getDeclarations().stream()
                     .filter(declaration -> declaration instanceof DeclarationConcrete)
                     .collect(Collectors.toMap(Declaration::getPropertyReference, declaration -> declaration));
@@ -20,24 +20,139 @@
 package fr.labri.mocss.algo;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import fr.labri.mocss.model.Declaration;
+import fr.labri.mocss.model.Selector;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class Lattice {
 
     private Set<Node> nodes;
+    private LatticeStore store;
+    private Reachability reachability;
+
+    /* Cached topological order, still valid when edges or nodes are removed; removed nodes leave holes and
+       keep their position, so that the positions are shared with the copies */
+    private Node[] order;
+    private Map<Node, Integer> orderPositions;
+    private int orderHolesNb;
 
     public Lattice(Set<Node> nodes) {
         this.nodes = Sets.newHashSet(nodes);
+        this.store = LatticeStore.of(this.nodes);
+    }
+
+    private Lattice(LatticeStore store) {
+        this.store = store;
+        this.nodes = Sets.newHashSet(store.getNodes());
+    }
+
+    private Lattice(Lattice lattice) {
+        this.store = lattice.store.copy();
+        this.nodes = Sets.newHashSet();
+        lattice.nodes.forEach(node -> this.nodes.add(this.store.get(node)));
+        if (lattice.order != null) {
+            this.order = new Node[lattice.order.length];
+            for (int i = 0; i < this.order.length; i++) {
+                this.order[i] = lattice.order[i] != null ? this.store.get(lattice.order[i]) : null;
+            }
+            this.orderPositions = lattice.orderPositions;
+            this.orderHolesNb = lattice.orderHolesNb;
+        }
+    }
+
+    /*
+     * Copy of the lattice with new nodes, which shares the storage of the links and labels until they are
+     * changed, so that several filters can be applied to variants of a single lattice
+     */
+    public Lattice copy() {
+        return new Lattice(this);
     }
 
     public Set<Node> getNodes() {
         return this.nodes;
     }
 
+    /*
+     * The edges between the nodes of the lattice have to be changed by the following methods, which keep the
+     * reachability index up to date, once it is built by a first query.
+     */
+
+    public void addEdge(Node parent, Node child) {
+        parent.getChildren().add(child);
+        child.getParents().add(parent);
+        if (this.order != null && this.orderPositions.get(parent) > this.orderPositions.get(child)) {
+            this.order = null;
+        }
+        if (this.reachability != null) {
+            this.reachability.addEdge(parent, child);
+        }
+    }
+
+    public void removeEdge(Node parent, Node child) {
+        parent.getChildren().remove(child);
+        child.getParents().remove(parent);
+        if (this.reachability != null) {
+            this.reachability.removeEdges(Collections.singleton(parent), Collections.singleton(child));
+        }
+    }
+
+    public void removeChildren(Node node) {
+        Set<Node> children = Sets.newHashSet(node.getChildren());
+        children.forEach(child -> child.getParents().remove(node));
+        node.getChildren().clear();
+        if (this.reachability != null) {
+            this.reachability.removeEdges(Collections.singleton(node), children);
+        }
+    }
+
+    // The removed node keeps its own links, only the other nodes are no longer linked to it
+    public void removeNode(Node node) {
+        node.getParents().forEach(parent -> parent.getChildren().remove(node));
+        node.getChildren().forEach(child -> child.getParents().remove(node));
+        this.nodes.remove(node);
+        if (this.order != null) {
+            int position = this.orderPositions.get(node);
+            if (this.order[position] != null) {
+                this.order[position] = null;
+                this.orderHolesNb++;
+            }
+        }
+        if (this.reachability != null) {
+            this.reachability.removeNode(node);
+        }
+    }
+
+    // Ancestors of the node, itself included
+    public Set<Node> getAllParents(Node node) {
+        return reachability().getAncestors(node);
+    }
+
+    // Descendants of the node, itself included
+    public Set<Node> getAllChildren(Node node) {
+        return reachability().getDescendants(node);
+    }
+
+    public boolean isAncestor(Node ancestor, Node node) {
+        return reachability().isAncestor(ancestor, node);
+    }
+
+    private Reachability reachability() {
+        if (this.reachability == null) {
+            this.reachability = new Reachability(topologicalOrder());
+        }
+        return this.reachability;
+    }
+
     public Set<Node> getRoots() {
         return this.nodes.stream()
                 .filter(node -> node.getParents().isEmpty())
@@ -50,21 +165,100 @@ public class Lattice {
                 .collect(Collectors.toSet());
     }
 
+    // Parents before their children, as a copy of the cached order
     public List<Node> topologicalOrder() {
-        List<Node> result = Lists.newLinkedList();
-        Set<Node> visitedNodes = Sets.newHashSet();
-        this.nodes.forEach(node -> topologicalOrderAux(node, visitedNodes, result));
+        if (this.order == null) {
+            this.order = kahnOrder();
+            this.orderPositions = Maps.newHashMap();
+            for (int i = 0; i < this.order.length; i++) {
+                this.orderPositions.put(this.order[i], i);
+            }
+            this.orderHolesNb = 0;
+        }
+        if (this.orderHolesNb == 0) {
+            return Arrays.asList(this.order.clone());
+        }
+        Node[] result = new Node[this.order.length - this.orderHolesNb];
+        int i = 0;
+        for (Node node : this.order) {
+            if (node != null) {
+                result[i++] = node;
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    private Node[] kahnOrder() {
+        Map<Node, Integer> parentsNbs = Maps.newHashMap();
+        Deque<Node> roots = new ArrayDeque<>();
+        this.nodes.forEach(node -> {
+            int parentsNb = (int) node.getParents().stream().filter(this.nodes::contains).count();
+            if (parentsNb == 0) {
+                roots.add(node);
+            } else {
+                parentsNbs.put(node, parentsNb);
+            }
+        });
+
+        Node[] result = new Node[this.nodes.size()];
+        int i = 0;
+        while (!roots.isEmpty()) {
+            Node node = roots.poll();
+            result[i++] = node;
+            for (Node child : node.getChildren()) {
+                Integer parentsNb = parentsNbs.get(child);
+                if (parentsNb == null) {
+                    continue;
+                }
+                if (parentsNb == 1) {
+                    parentsNbs.remove(child);
+                    roots.add(child);
+                } else {
+                    parentsNbs.put(child, parentsNb - 1);
+                }
+            }
+        }
+        assert i == result.length : "cycle in the lattice";
         return result;
     }
 
-    private void topologicalOrderAux(Node node, Set<Node> visitedNodes, List<Node> topologicalOrder) {
-        if (!visitedNodes.contains(node)) {
-            for (Node parent : node.getParents()) {
-                topologicalOrderAux(parent, visitedNodes, topologicalOrder);
+    /*
+     * Builder which fills the store of a lattice directly, without building the sets of the nodes first:
+     * the nodes are referred to by the index returned when they are added, and are stored in that order
+     */
+    public static class Builder {
+
+        private final List<Node> nodes = Lists.newArrayList();
+        private final List<Set<Selector>> selectors = Lists.newArrayList();
+        private final List<Set<Selector>> allSelectors = Lists.newArrayList();
+        private final List<Set<Declaration>> declarations = Lists.newArrayList();
+        // Pairs of indexes of a parent and of a child
+        private int[] edges = new int[16];
+        private int edgesNb;
+
+        public int addNode(int identifier, Set<Selector> selectors, Set<Selector> allSelectors,
+                           Set<Declaration> declarations) {
+            this.nodes.add(new Node(identifier));
+            this.selectors.add(selectors);
+            this.allSelectors.add(allSelectors);
+            this.declarations.add(declarations);
+            return this.nodes.size() - 1;
+        }
+
+        public void addEdge(int parent, int child) {
+            if (2 * this.edgesNb == this.edges.length) {
+                this.edges = Arrays.copyOf(this.edges, 2 * this.edges.length);
             }
-            visitedNodes.add(node);
-            topologicalOrder.add(node);
+            this.edges[2 * this.edgesNb] = parent;
+            this.edges[2 * this.edgesNb + 1] = child;
+            this.edgesNb++;
         }
+
+        public Lattice build() {
+            return new Lattice(LatticeStore.of(this.nodes, this.edges, this.edgesNb, this.selectors,
+                    this.allSelectors, this.declarations));
+        }
+
     }
 
 }
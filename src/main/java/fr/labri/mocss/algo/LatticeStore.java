@@ -0,0 +1,430 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import fr.labri.mocss.model.Declaration;
+import fr.labri.mocss.model.Selector;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/*
+ * Compact storage of the nodes of a lattice: each node gets a dense index, its links and its labels are
+ * sorted arrays of indexes of nodes, selectors and declarations, instead of hash sets. The sets of the nodes
+ * become views of these arrays, so the nodes keep their API; nodes built by a Lattice.Builder never had
+ * other sets. The own declarations of the nodes are cached,
+ * and dropped when the parents of a node, or the declarations of a node or of one of its parents, change.
+ *
+ * A copy shares the arrays of the rows with its original, and each of them copies a row before its first
+ * change: variants of a lattice only pay for the rows they edit. Each copy gets its own dictionaries, with the
+ * same indexes, so that the copies of a store can be changed by different threads once they are made.
+ */
+class LatticeStore {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<Node, Integer> indexes;
+    private final Node[] nodes;
+    private final Rows parents;
+    private final Rows children;
+    private final Rows selectors;
+    private final Rows allSelectors;
+    private final Rows declarations;
+    private final Dictionary<Selector> selectorsDictionary;
+    private final Dictionary<Declaration> declarationsDictionary;
+    private final OwnDeclarations[] ownDeclarations;
+
+    private LatticeStore(Node[] nodes, Map<Node, Integer> indexes, int[][] parents, int[][] children,
+                         IntFunction<Set<Selector>> selectors, IntFunction<Set<Selector>> allSelectors,
+                         IntFunction<Set<Declaration>> declarations) {
+        this.nodes = nodes;
+        this.indexes = indexes;
+        this.selectorsDictionary = new Dictionary<>();
+        this.declarationsDictionary = new Dictionary<>();
+        this.ownDeclarations = new OwnDeclarations[this.nodes.length];
+        this.parents = new Rows(parents, this::parentsChanged);
+        this.children = new Rows(children, LatticeStore::unchanged);
+        this.selectors = new Rows(this.nodes.length, selectors, this.selectorsDictionary::intern,
+                LatticeStore::unchanged);
+        this.allSelectors = new Rows(this.nodes.length, allSelectors, this.selectorsDictionary::intern,
+                LatticeStore::unchanged);
+        this.declarations = new Rows(this.nodes.length, declarations, this.declarationsDictionary::intern,
+                this::declarationsChanged);
+        storeNodes();
+    }
+
+    // Store of nodes built with their own sets
+    static LatticeStore of(Collection<Node> nodes) {
+        Node[] sortedNodes = nodes.toArray(new Node[nodes.size()]);
+        Arrays.sort(sortedNodes, Comparator.comparingInt(Node::getIdentifier));
+        Map<Node, Integer> indexes = indexes(sortedNodes);
+        ToIntFunction<Node> index = node -> {
+            Integer result = indexes.get(node);
+            assert result != null : "node linked outside of the lattice: " + node;
+            return result;
+        };
+        int[][] parents = new int[sortedNodes.length][];
+        int[][] children = new int[sortedNodes.length][];
+        for (int i = 0; i < sortedNodes.length; i++) {
+            parents[i] = sortedNodes[i].getParents().stream().mapToInt(index).sorted().toArray();
+            children[i] = sortedNodes[i].getChildren().stream().mapToInt(index).sorted().toArray();
+        }
+        return new LatticeStore(sortedNodes, indexes, parents, children, i -> sortedNodes[i].getSelectors(),
+                i -> sortedNodes[i].getallSelectors(), i -> sortedNodes[i].getDeclarations());
+    }
+
+    // Store of nodes without sets, linked by the pairs of indexes of a parent and of a child in the edges
+    static LatticeStore of(List<Node> nodes, int[] edges, int edgesNb, List<Set<Selector>> selectors,
+                           List<Set<Selector>> allSelectors, List<Set<Declaration>> declarations) {
+        Node[] storedNodes = nodes.toArray(new Node[nodes.size()]);
+        return new LatticeStore(storedNodes, indexes(storedNodes), rows(storedNodes.length, edges, edgesNb, 1),
+                rows(storedNodes.length, edges, edgesNb, 0), selectors::get, allSelectors::get, declarations::get);
+    }
+
+    private static Map<Node, Integer> indexes(Node[] nodes) {
+        Map<Node, Integer> result = Maps.newHashMapWithExpectedSize(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            result.put(nodes[i], i);
+        }
+        return result;
+    }
+
+    // Rows of the other ends of the edges, indexed by the end at the given offset of each pair
+    private static int[][] rows(int rowsNb, int[] edges, int edgesNb, int offset) {
+        int[] sizes = new int[rowsNb];
+        for (int i = 0; i < edgesNb; i++) {
+            sizes[edges[2 * i + offset]]++;
+        }
+        int[][] result = new int[rowsNb][];
+        for (int i = 0; i < rowsNb; i++) {
+            result[i] = new int[sizes[i]];
+        }
+        Arrays.fill(sizes, 0);
+        for (int i = 0; i < edgesNb; i++) {
+            int row = edges[2 * i + offset];
+            result[row][sizes[row]++] = edges[2 * i + 1 - offset];
+        }
+        for (int i = 0; i < rowsNb; i++) {
+            result[i] = Arrays.stream(result[i]).sorted().distinct().toArray();
+        }
+        return result;
+    }
+
+    private LatticeStore(LatticeStore store) {
+        this.indexes = store.indexes;
+        this.nodes = new Node[store.nodes.length];
+        for (int i = 0; i < this.nodes.length; i++) {
+            this.nodes[i] = new Node(store.nodes[i].getIdentifier());
+        }
+        this.selectorsDictionary = new Dictionary<>(store.selectorsDictionary);
+        this.declarationsDictionary = new Dictionary<>(store.declarationsDictionary);
+        this.ownDeclarations = store.ownDeclarations.clone();
+        this.parents = new Rows(store.parents, this::parentsChanged);
+        this.children = new Rows(store.children, LatticeStore::unchanged);
+        this.selectors = new Rows(store.selectors, LatticeStore::unchanged);
+        this.allSelectors = new Rows(store.allSelectors, LatticeStore::unchanged);
+        this.declarations = new Rows(store.declarations, this::declarationsChanged);
+        storeNodes();
+    }
+
+    List<Node> getNodes() {
+        return Arrays.asList(this.nodes);
+    }
+
+    LatticeStore copy() {
+        return new LatticeStore(this);
+    }
+
+    // Node of this store with the same identifier as the given one, from this store or one of its copies
+    Node get(Node node) {
+        return this.nodes[this.indexes.get(node)];
+    }
+
+    private void storeNodes() {
+        ToIntFunction<Object> nodeIndex = obj -> {
+            Integer result = this.indexes.get(obj);
+            return result != null && this.nodes[result] == obj ? result : -1;
+        };
+        ToIntFunction<Node> addedNodeIndex = node -> {
+            int result = nodeIndex.applyAsInt(node);
+            if (result < 0) {
+                throw new IllegalArgumentException("node outside of the lattice: " + node);
+            }
+            return result;
+        };
+        for (int i = 0; i < this.nodes.length; i++) {
+            this.nodes[i].store(this, i,
+                    new RowSet<>(this.parents, i, j -> this.nodes[j], nodeIndex, addedNodeIndex),
+                    new RowSet<>(this.children, i, j -> this.nodes[j], nodeIndex, addedNodeIndex),
+                    labels(this.selectors, i, this.selectorsDictionary),
+                    labels(this.allSelectors, i, this.selectorsDictionary),
+                    labels(this.declarations, i, this.declarationsDictionary)
+            );
+        }
+    }
+
+    private static void unchanged(int index) {
+    }
+
+    private void parentsChanged(int index) {
+        this.ownDeclarations[index] = null;
+    }
+
+    private void declarationsChanged(int index) {
+        this.ownDeclarations[index] = null;
+        for (int i = 0; i < this.children.sizes[index]; i++) {
+            this.ownDeclarations[this.children.rows[index][i]] = null;
+        }
+    }
+
+    OwnDeclarations ownDeclarations(int index) {
+        if (this.ownDeclarations[index] == null) {
+            this.ownDeclarations[index] = new OwnDeclarations(this.nodes[index]);
+        }
+        return this.ownDeclarations[index];
+    }
+
+    private static <T> Set<T> labels(Rows rows, int row, Dictionary<T> dictionary) {
+        return new RowSet<>(rows, row, dictionary::get, dictionary::index, dictionary::intern);
+    }
+
+    // Sorted arrays of indexes, one per node, resized when they are full
+    private static class Rows {
+
+        private final int[][] rows;
+        private final int[] sizes;
+        private final IntConsumer changed;
+        // Rows whose array is not shared with another store, and can be changed in place
+        private final BitSet ownedRows;
+
+        // Rows of the given sorted arrays, which are not copied
+        private Rows(int[][] rows, IntConsumer changed) {
+            this.rows = rows;
+            this.sizes = new int[rows.length];
+            this.changed = changed;
+            this.ownedRows = new BitSet(rows.length);
+            this.ownedRows.set(0, rows.length);
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i].length == 0) {
+                    rows[i] = EMPTY;
+                }
+                this.sizes[i] = rows[i].length;
+            }
+        }
+
+        private <T> Rows(int rowsNb, IntFunction<Set<T>> elements, ToIntFunction<T> index, IntConsumer changed) {
+            this(sortedRows(rowsNb, elements, index), changed);
+        }
+
+        private static <T> int[][] sortedRows(int rowsNb, IntFunction<Set<T>> elements, ToIntFunction<T> index) {
+            int[][] result = new int[rowsNb][];
+            for (int i = 0; i < rowsNb; i++) {
+                result[i] = elements.apply(i).stream().mapToInt(index).sorted().toArray();
+            }
+            return result;
+        }
+
+        private Rows(Rows rows, IntConsumer changed) {
+            this.rows = rows.rows.clone();
+            this.sizes = rows.sizes.clone();
+            this.changed = changed;
+            this.ownedRows = new BitSet(this.rows.length);
+            rows.ownedRows.clear();
+        }
+
+        private boolean contains(int row, int index) {
+            return index >= 0 && Arrays.binarySearch(this.rows[row], 0, this.sizes[row], index) >= 0;
+        }
+
+        private boolean add(int row, int index) {
+            int position = Arrays.binarySearch(this.rows[row], 0, this.sizes[row], index);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            int[] elements = this.rows[row];
+            int size = this.sizes[row];
+            if (size == elements.length || !this.ownedRows.get(row)) {
+                elements = Arrays.copyOf(elements, size == elements.length ? Math.max(4, size + (size >> 1))
+                        : elements.length);
+                System.arraycopy(this.rows[row], position, elements, position + 1, size - position);
+                this.rows[row] = elements;
+                this.ownedRows.set(row);
+            } else {
+                System.arraycopy(elements, position, elements, position + 1, size - position);
+            }
+            elements[position] = index;
+            this.sizes[row]++;
+            this.changed.accept(row);
+            return true;
+        }
+
+        private boolean remove(int row, int index) {
+            int position = index < 0 ? -1 : Arrays.binarySearch(this.rows[row], 0, this.sizes[row], index);
+            if (position < 0) {
+                return false;
+            }
+            int[] elements = this.rows[row];
+            if (!this.ownedRows.get(row)) {
+                elements = elements.clone();
+                this.rows[row] = elements;
+                this.ownedRows.set(row);
+            }
+            System.arraycopy(elements, position + 1, elements, position, this.sizes[row] - position - 1);
+            this.sizes[row]--;
+            this.changed.accept(row);
+            return true;
+        }
+
+        private void clear(int row) {
+            this.rows[row] = EMPTY;
+            this.sizes[row] = 0;
+            this.changed.accept(row);
+        }
+
+    }
+
+    // Mutable view of a row, through the indexes of its elements
+    private static class RowSet<T> extends AbstractSet<T> {
+
+        private final Rows rows;
+        private final int row;
+        private final IntFunction<T> element;
+        private final ToIntFunction<Object> index;
+        private final ToIntFunction<T> addedIndex;
+
+        private RowSet(Rows rows, int row, IntFunction<T> element, ToIntFunction<Object> index,
+                       ToIntFunction<T> addedIndex) {
+            this.rows = rows;
+            this.row = row;
+            this.element = element;
+            this.index = index;
+            this.addedIndex = addedIndex;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+
+                private int next = 0;
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return this.next < rows.sizes[row];
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    this.last = rows.rows[row][this.next++];
+                    return element.apply(this.last);
+                }
+
+                @Override
+                public void remove() {
+                    if (this.last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    rows.remove(row, this.last);
+                    this.next--;
+                    this.last = -1;
+                }
+
+            };
+        }
+
+        @Override
+        public int size() {
+            return this.rows.sizes[this.row];
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            return this.rows.contains(this.row, this.index.applyAsInt(obj));
+        }
+
+        @Override
+        public boolean add(T obj) {
+            return this.rows.add(this.row, this.addedIndex.applyAsInt(obj));
+        }
+
+        @Override
+        public boolean remove(Object obj) {
+            return this.rows.remove(this.row, this.index.applyAsInt(obj));
+        }
+
+        @Override
+        public void clear() {
+            this.rows.clear(this.row);
+        }
+
+    }
+
+    // Dense indexes of the labels, each label is stored once for all the nodes
+    private static class Dictionary<T> {
+
+        private final List<T> elements;
+        private final Map<T, Integer> indexes;
+
+        private Dictionary() {
+            this.elements = Lists.newArrayList();
+            this.indexes = Maps.newHashMap();
+        }
+
+        private Dictionary(Dictionary<T> dictionary) {
+            this.elements = Lists.newArrayList(dictionary.elements);
+            this.indexes = Maps.newHashMap(dictionary.indexes);
+        }
+
+        private int intern(T element) {
+            return this.indexes.computeIfAbsent(element, key -> {
+                this.elements.add(key);
+                return this.elements.size() - 1;
+            });
+        }
+
+        private T get(int index) {
+            return this.elements.get(index);
+        }
+
+        private int index(Object element) {
+            return this.indexes.getOrDefault(element, -1);
+        }
+
+    }
+
+}
@@ -21,14 +21,20 @@ package fr.labri.mocss.algo;
 
 import com.google.common.collect.Sets;
 import fr.labri.mocss.model.Declaration;
+import fr.labri.mocss.model.Property;
 import fr.labri.mocss.model.Selector;
 
-import java.util.Iterator;
 import java.util.Set;
 
+/*
+ * Node of a lattice. Once the lattice is created, its store holds the links and the labels and the node sets
+ * become views of the store. As with plain sets, adding or removing a node only changes one side of a link.
+ */
 public class Node {
 
     private int identifier;
+    private LatticeStore store;
+    private int index;
     private Set<Node> parents;
     private Set<Node> children;
     private Set<Selector> selectors;
@@ -44,6 +50,27 @@ public class Node {
         this.children = Sets.newHashSet();
     }
 
+    // Node whose sets are given by a store, a copied one or one filled by a Lattice.Builder
+    Node(int identifier) {
+        this.identifier = identifier;
+    }
+
+    // Moves the node into the store of its lattice
+    void store(LatticeStore store, int index, Set<Node> parents, Set<Node> children, Set<Selector> selectors,
+               Set<Selector> allSelectors, Set<Declaration> declarations) {
+        this.store = store;
+        this.index = index;
+        this.parents = parents;
+        this.children = children;
+        this.selectors = selectors;
+        this.allSelectors = allSelectors;
+        this.declarations = declarations;
+    }
+
+    public int getIdentifier() {
+        return this.identifier;
+    }
+
     public Set<Selector> getSelectors() {
         return this.selectors;
     }
@@ -56,66 +83,35 @@ public class Node {
         return this.declarations;
     }
 
+    // Declarations which are not inherited from the parents
     public Set<Declaration> getSimplifiedDeclarations() {
-        Set<Declaration> result = Sets.newHashSet();
-        this.declarations.forEach(declaration -> {
-            boolean leafDeclaration = true;
-            for (Node parent : this.parents) {
-                if (parent.declarations.contains(declaration)) {
-                    leafDeclaration = false;
-                }
-            }
-            if (leafDeclaration) {
-                result.add(declaration);
-            }
-        });
-        return result;
+        return ownDeclarations().getDeclarations();
     }
 
-    public Set<Node> getParents() {
-        return this.parents;
+    public Set<Declaration> getSimplifiedConcreteDeclarations() {
+        return ownDeclarations().getConcreteDeclarations();
     }
 
-    public Set<Node> getChildren() {
-        return this.children;
+    // Properties of the abstract declarations which are not inherited from the parents, see getAbstractDeclarationsNb
+    public Set<Property> getParameters() {
+        return ownDeclarations().getParameters();
     }
 
-    public Set<Node> getAllParents() {
-        Set<Node> result = Sets.newHashSet();
-        Set<Node> tmp = Sets.newHashSet();
-        tmp.add(this);
-        while (!tmp.isEmpty()) {
-            Node node = pickOne(tmp);
-            if (!result.contains(node)) {
-                result.add(node);
-                tmp.addAll(node.getParents());
-            }
-        }
-        return result;
-    }
-
-    public Set<Node> getAllChildren() {
-        Set<Node> result = Sets.newHashSet();
-        Set<Node> tmp = Sets.newHashSet();
-        tmp.add(this);
-        while (!tmp.isEmpty()) {
-            Node node = pickOne(tmp);
-            if (!result.contains(node)) {
-                result.add(node);
-                tmp.addAll(node.getChildren());
-            }
-        }
-        return result;
+    // Abstract declarations of the node, inherited ones included: not the size of the parameters
+    public int getAbstractDeclarationsNb() {
+        return ownDeclarations().abstractDeclarationsNb();
     }
 
-    private Node pickOne(Set<Node> nodes) {
-        if (nodes.isEmpty()) {
-            return null;
-        }
-        Iterator<Node> it = nodes.iterator();
-        Node tmp = it.next();
-        it.remove();
-        return tmp;
+    private OwnDeclarations ownDeclarations() {
+        return this.store != null ? this.store.ownDeclarations(this.index) : new OwnDeclarations(this);
+    }
+
+    public Set<Node> getParents() {
+        return this.parents;
+    }
+
+    public Set<Node> getChildren() {
+        return this.children;
     }
 
     @Override
@@ -0,0 +1,77 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo;
+
+import com.google.common.collect.Sets;
+import fr.labri.mocss.model.Declaration;
+import fr.labri.mocss.model.DeclarationAbstract;
+import fr.labri.mocss.model.DeclarationConcrete;
+import fr.labri.mocss.model.Property;
+
+import java.util.Collections;
+import java.util.Set;
+
+// Declarations of a node which are not inherited from its parents, split by kind
+final class OwnDeclarations {
+
+    private final Set<Declaration> declarations = Sets.newHashSet();
+    private final Set<Declaration> concreteDeclarations = Sets.newHashSet();
+    private final Set<Property> parameters = Sets.newHashSet();
+    private final int abstractDeclarationsNb;
+
+    OwnDeclarations(Node node) {
+        int abstractDeclarationsNb = 0;
+        for (Declaration declaration : node.getDeclarations()) {
+            if (declaration instanceof DeclarationAbstract) {
+                abstractDeclarationsNb++;
+            }
+            if (node.getParents().stream().anyMatch(parent -> parent.getDeclarations().contains(declaration))) {
+                continue;
+            }
+            this.declarations.add(declaration);
+            if (declaration instanceof DeclarationConcrete) {
+                this.concreteDeclarations.add(declaration);
+            } else if (declaration instanceof DeclarationAbstract) {
+                this.parameters.add(declaration.getPropertyReference());
+            }
+        }
+        this.abstractDeclarationsNb = abstractDeclarationsNb;
+    }
+
+    Set<Declaration> getDeclarations() {
+        return Collections.unmodifiableSet(this.declarations);
+    }
+
+    Set<Declaration> getConcreteDeclarations() {
+        return Collections.unmodifiableSet(this.concreteDeclarations);
+    }
+
+    // Properties of the abstract declarations which are not inherited
+    Set<Property> getParameters() {
+        return Collections.unmodifiableSet(this.parameters);
+    }
+
+    // Abstract declarations of the node, inherited or not, unlike the parameters
+    int abstractDeclarationsNb() {
+        return this.abstractDeclarationsNb;
+    }
+
+}
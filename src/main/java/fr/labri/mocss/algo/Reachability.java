@@ -0,0 +1,201 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo;
+
+import com.google.common.collect.Maps;
+import fr.labri.mocss.algo.fca.Bitsets;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+ * Transitive closure of a lattice: the ancestors and descendants of each node, itself included, as bitsets
+ * over the positions of the nodes. Adding an edge merges the closures of both sides, removing edges only
+ * recomputes the closures of the ancestors and descendants of the edges, which are the only ones to change.
+ */
+class Reachability {
+
+    private final Map<Node, Integer> positions = Maps.newHashMap();
+    private final Node[] nodes;
+    private final long[][] ancestors;
+    private final long[][] descendants;
+
+    // The given order must list the parents before their children
+    Reachability(List<Node> topologicalOrder) {
+        this.nodes = new Node[topologicalOrder.size()];
+        this.ancestors = new long[this.nodes.length][];
+        this.descendants = new long[this.nodes.length][];
+        topologicalOrder.forEach(node -> {
+            int position = this.positions.size();
+            this.positions.put(node, position);
+            this.nodes[position] = node;
+        });
+        for (int i = 0; i < this.nodes.length; i++) {
+            this.ancestors[i] = closure(this.nodes[i], this.nodes[i].getParents(), this.ancestors);
+        }
+        for (int i = this.nodes.length - 1; i >= 0; i--) {
+            this.descendants[i] = closure(this.nodes[i], this.nodes[i].getChildren(), this.descendants);
+        }
+    }
+
+    Set<Node> getAncestors(Node node) {
+        return new NodeSet(this.ancestors[position(node)]);
+    }
+
+    Set<Node> getDescendants(Node node) {
+        return new NodeSet(this.descendants[position(node)]);
+    }
+
+    boolean isAncestor(Node ancestor, Node node) {
+        return Bitsets.get(this.ancestors[position(node)], position(ancestor));
+    }
+
+    void addEdge(Node parent, Node child) {
+        int parentPosition = position(parent);
+        int childPosition = position(child);
+        if (Bitsets.get(this.descendants[parentPosition], childPosition)) {
+            return;
+        }
+        long[] parentAncestors = this.ancestors[parentPosition];
+        long[] childDescendants = this.descendants[childPosition];
+        for (int i = Bitsets.nextSetBit(parentAncestors, 0); i >= 0; i = Bitsets.nextSetBit(parentAncestors, i + 1)) {
+            Bitsets.or(this.descendants[i], childDescendants);
+        }
+        for (int i = Bitsets.nextSetBit(childDescendants, 0); i >= 0; i = Bitsets.nextSetBit(childDescendants, i + 1)) {
+            Bitsets.or(this.ancestors[i], parentAncestors);
+        }
+    }
+
+    // To call once the edges are removed, with the parents and the children of the removed edges
+    void removeEdges(Collection<Node> parents, Collection<Node> children) {
+        long[] upperNodes = Bitsets.empty(this.nodes.length);
+        long[] lowerNodes = Bitsets.empty(this.nodes.length);
+        parents.forEach(parent -> Bitsets.or(upperNodes, this.ancestors[position(parent)]));
+        children.forEach(child -> Bitsets.or(lowerNodes, this.descendants[position(child)]));
+        update(upperNodes, lowerNodes);
+    }
+
+    // To call once the other nodes are no longer linked to the given one
+    void removeNode(Node node) {
+        int position = position(node);
+        long[] upperNodes = this.ancestors[position];
+        long[] lowerNodes = this.descendants[position];
+        Bitsets.clear(upperNodes, position);
+        Bitsets.clear(lowerNodes, position);
+        this.positions.remove(node);
+        this.nodes[position] = null;
+        this.ancestors[position] = null;
+        this.descendants[position] = null;
+        update(upperNodes, lowerNodes);
+    }
+
+    /* The closures only shrink, so ordering by the sizes of the old ancestors puts the children before their
+       parents, and once the descendants are recomputed, ordering by their sizes puts the parents first */
+    private void update(long[] upperNodes, long[] lowerNodes) {
+        for (Node node : sorted(upperNodes, this.ancestors)) {
+            this.descendants[position(node)] = closure(node, node.getChildren(), this.descendants);
+        }
+        for (Node node : sorted(lowerNodes, this.descendants)) {
+            this.ancestors[position(node)] = closure(node, node.getParents(), this.ancestors);
+        }
+    }
+
+    private int position(Node node) {
+        Integer position = this.positions.get(node);
+        assert position != null : node;
+        return position;
+    }
+
+    private long[] closure(Node node, Set<Node> neighbours, long[][] closures) {
+        long[] result = Bitsets.empty(this.nodes.length);
+        int position = position(node);
+        Bitsets.set(result, position);
+        neighbours.forEach(neighbour -> Bitsets.or(result, closures[position(neighbour)]));
+        return result;
+    }
+
+    // Nodes of the given bitset, from the largest closure to the smallest one
+    private Node[] sorted(long[] bits, long[][] closures) {
+        Node[] result = new Node[Bitsets.cardinality(bits)];
+        int[] sizes = new int[this.nodes.length];
+        int j = 0;
+        for (int i = Bitsets.nextSetBit(bits, 0); i >= 0; i = Bitsets.nextSetBit(bits, i + 1)) {
+            sizes[i] = Bitsets.cardinality(closures[i]);
+            result[j++] = this.nodes[i];
+        }
+        Arrays.sort(result, Comparator.comparingInt((Node node) -> -sizes[position(node)]));
+        return result;
+    }
+
+    // Unmodifiable view of the nodes of a closure, until the next change of the edges
+    private class NodeSet extends AbstractSet<Node> {
+
+        private final long[] bits;
+
+        private NodeSet(long[] bits) {
+            this.bits = bits;
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            return new Iterator<Node>() {
+
+                private int next = Bitsets.nextSetBit(bits, 0);
+
+                @Override
+                public boolean hasNext() {
+                    return this.next >= 0;
+                }
+
+                @Override
+                public Node next() {
+                    if (this.next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    Node node = nodes[this.next];
+                    this.next = Bitsets.nextSetBit(bits, this.next + 1);
+                    return node;
+                }
+
+            };
+        }
+
+        @Override
+        public int size() {
+            return Bitsets.cardinality(this.bits);
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            Integer position = positions.get(obj);
+            return position != null && Bitsets.get(this.bits, position);
+        }
+
+    }
+
+}
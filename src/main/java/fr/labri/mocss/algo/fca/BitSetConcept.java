@@ -0,0 +1,98 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import java.util.Arrays;
+import java.util.Set;
+
+public class BitSetConcept extends IndexedConcept {
+
+    private final BitSetContext context;
+    private final long[] extents;
+    private final long[] intents;
+    private final int hashCode;
+
+    public BitSetConcept(int identifier, BitSetContext context, long[] extents, long[] intents) {
+        super(identifier);
+        this.context = context;
+        this.extents = extents;
+        this.intents = intents;
+        // Same value as a SetConcept holding the same elements
+        this.hashCode = context.attributesHashCode(intents) + context.entitiesHashCode(extents);
+    }
+
+    public long[] getExtentsBits() {
+        return this.extents;
+    }
+
+    public long[] getIntentsBits() {
+        return this.intents;
+    }
+
+    @Override
+    protected Set<FcaElement> computeExtents() {
+        return this.context.toEntities(this.extents);
+    }
+
+    @Override
+    protected Set<FcaElement> computeIntents() {
+        return this.context.toAttributes(this.intents);
+    }
+
+    @Override
+    protected Set<FcaElement> computeSimplifiedExtents() {
+        long[] simplifiedExtents = this.extents.clone();
+        getChildren().forEach(child -> Bitsets.andNot(simplifiedExtents, ((BitSetConcept) child).extents));
+        return this.context.toEntities(simplifiedExtents);
+    }
+
+    @Override
+    protected Set<FcaElement> computeSimplifiedIntents() {
+        long[] simplifiedIntents = this.intents.clone();
+        getParents().forEach(parent -> Bitsets.andNot(simplifiedIntents, ((BitSetConcept) parent).intents));
+        return this.context.toAttributes(simplifiedIntents);
+    }
+
+    @Override
+    public boolean isGreaterThan(Concept concept) {
+        return Bitsets.containsAll(this.extents, ((BitSetConcept) concept).extents);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        } else if (obj == this) {
+            return true;
+        } else if (!(obj instanceof BitSetConcept)) {
+            return false;
+        } else {
+            final BitSetConcept other = (BitSetConcept) obj;
+            return other.hashCode == this.hashCode
+                    && Arrays.equals(other.intents, this.intents) && Arrays.equals(other.extents, this.extents);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+public class BitSetGsh implements GshAlgorithm {
+
+    private BitSetContext context;
+    private ForkJoinPool pool;
+    private Set<Concept> concepts;
+
+    public BitSetGsh(BitSetContext context) {
+        this(context, null);
+    }
+
+    public BitSetGsh(BitSetContext context, ForkJoinPool pool) {
+        this.context = context;
+        this.pool = pool;
+    }
+
+    @Override
+    public void compute() {
+        this.concepts = Sets.newHashSet();
+
+        this.concepts.addAll(ParallelTasks.map(this.pool, this.context.entitiesNb(), this::u));
+        this.concepts.addAll(ParallelTasks.map(this.pool, this.context.attributesNb(), this::v));
+
+        List<BitSetConcept> orderedConcepts = Lists.newArrayListWithCapacity(this.concepts.size());
+        this.concepts.forEach(concept -> orderedConcepts.add((BitSetConcept) concept));
+        List<List<BitSetConcept>> parents = ParallelTasks.map(this.pool, orderedConcepts.size(), i ->
+                selectSmallest(allGreaters(orderedConcepts.get(i), orderedConcepts))
+        );
+        for (int i = 0; i < orderedConcepts.size(); i++) {
+            parents.get(i).forEach(orderedConcepts.get(i)::addParent);
+        }
+
+        // Own extents and intents are computed once the concepts are linked
+        ParallelTasks.forEach(this.pool, orderedConcepts.size(), i -> orderedConcepts.get(i).computeLabels());
+    }
+
+    private BitSetConcept u(int entity) {
+        long[] intents = this.context.getAttributes(entity).clone();
+        long[] extents = Bitsets.full(this.context.entitiesNb());
+        for (int attribute = Bitsets.nextSetBit(intents, 0); attribute >= 0; attribute = Bitsets.nextSetBit(intents, attribute + 1)) {
+            Bitsets.and(extents, this.context.getEntities(attribute));
+        }
+        return new BitSetConcept(entity, this.context, extents, intents);
+    }
+
+    private BitSetConcept v(int attribute) {
+        long[] extents = this.context.getEntities(attribute).clone();
+        long[] intents = Bitsets.full(this.context.attributesNb());
+        for (int entity = Bitsets.nextSetBit(extents, 0); entity >= 0; entity = Bitsets.nextSetBit(extents, entity + 1)) {
+            Bitsets.and(intents, this.context.getAttributes(entity));
+        }
+        return new BitSetConcept(this.context.entitiesNb() + attribute, this.context, extents, intents);
+    }
+
+    private List<BitSetConcept> allGreaters(BitSetConcept concept, List<BitSetConcept> candidates) {
+        List<BitSetConcept> allGreaters = Lists.newArrayList();
+        candidates.forEach(candidate -> {
+            if (candidate != concept && candidate.isGreaterThan(concept)) {
+                allGreaters.add(candidate);
+            }
+        });
+        return allGreaters;
+    }
+
+    private List<BitSetConcept> selectSmallest(List<BitSetConcept> concepts) {
+        List<BitSetConcept> smallests = Lists.newArrayList();
+        concepts.forEach(concept -> push(concept, smallests));
+        return smallests;
+    }
+
+    private void push(BitSetConcept concept, List<BitSetConcept> smallests) {
+        for (BitSetConcept current : smallests) {
+            if (current.isSmallerThan(concept)) {
+                return;
+            }
+        }
+        smallests.removeIf(current -> concept.isSmallerThan(current));
+        smallests.add(concept);
+    }
+
+    @Override
+    public Set<Concept> getConcepts() {
+        return this.concepts;
+    }
+
+}
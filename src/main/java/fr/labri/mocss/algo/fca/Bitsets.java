@@ -0,0 +1,162 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+public final class Bitsets {
+
+    private static final int ADDRESS_BITS = 6;
+
+    public static int words(int size) {
+        return (size + 63) >>> ADDRESS_BITS;
+    }
+
+    public static long[] empty(int size) {
+        return new long[words(size)];
+    }
+
+    public static long[] full(int size) {
+        long[] bits = empty(size);
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = -1L;
+        }
+        int remaining = size & 63;
+        if (remaining != 0) {
+            bits[bits.length - 1] = (1L << remaining) - 1;
+        }
+        return bits;
+    }
+
+    public static void set(long[] bits, int index) {
+        bits[index >>> ADDRESS_BITS] |= 1L << index;
+    }
+
+    public static void clear(long[] bits, int index) {
+        bits[index >>> ADDRESS_BITS] &= ~(1L << index);
+    }
+
+    public static boolean get(long[] bits, int index) {
+        return (bits[index >>> ADDRESS_BITS] & (1L << index)) != 0;
+    }
+
+    public static void and(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= other[i];
+        }
+    }
+
+    public static void or(long[] bits, long[] other) {
+        for (int i = 0; i < other.length; i++) {
+            bits[i] |= other[i];
+        }
+    }
+
+    public static void andNot(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= ~other[i];
+        }
+    }
+
+    public static boolean containsAll(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            if ((other[i] & ~bits[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Tests whether the bits of other below the given index are all set in bits
+    public static boolean containsAllBefore(long[] bits, long[] other, int index) {
+        int fullWords = index >>> ADDRESS_BITS;
+        for (int i = 0; i < fullWords; i++) {
+            if ((other[i] & ~bits[i]) != 0) {
+                return false;
+            }
+        }
+        long mask = (1L << index) - 1;
+        return (index & 63) == 0 || (other[fullWords] & ~bits[fullWords] & mask) == 0;
+    }
+
+    // Tests whether bits and other have the same bits below the given index
+    public static boolean equalsBefore(long[] bits, long[] other, int index) {
+        return containsAllBefore(bits, other, index) && containsAllBefore(other, bits, index);
+    }
+
+    public static int cardinality(long[] bits) {
+        int cardinality = 0;
+        for (long word : bits) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    public static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static int nextSetBit(long[] bits, int from) {
+        int wordIndex = from >>> ADDRESS_BITS;
+        if (wordIndex >= bits.length) {
+            return -1;
+        }
+        long word = bits[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << ADDRESS_BITS) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == bits.length) {
+                return -1;
+            }
+            word = bits[wordIndex];
+        }
+    }
+
+    // Returns the index of the last set bit at or before from, or -1
+    public static int previousSetBit(long[] bits, int from) {
+        if (from < 0 || bits.length == 0) {
+            return -1;
+        }
+        int wordIndex = from >>> ADDRESS_BITS;
+        long word;
+        if (wordIndex >= bits.length) {
+            wordIndex = bits.length - 1;
+            word = bits[wordIndex];
+        } else {
+            word = bits[wordIndex] & (-1L >>> (63 - (from & 63)));
+        }
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << ADDRESS_BITS) + 63 - Long.numberOfLeadingZeros(word);
+            }
+            if (--wordIndex < 0) {
+                return -1;
+            }
+            word = bits[wordIndex];
+        }
+    }
+
+    private Bitsets() {}
+
+}
@@ -22,40 +22,64 @@ package fr.labri.mocss.algo.fca;
 
 import com.google.common.collect.Sets;
 
+import java.util.Collections;
 import java.util.Set;
 
-public class Concept {
+// Extents and intents of a concept never change once it is built, only its links do
+public abstract class Concept {
 
+    private final int identifier;
     private Set<Concept> parents;
     private Set<Concept> children;
-    private Set<FcaElement> extents;
-    private Set<FcaElement> intents;
 
-    public Concept() {
+    // Own extents and intents, computed once the concept is linked and reset when its links change
+    private Set<FcaElement> simplifiedExtents;
+    private Set<FcaElement> simplifiedIntents;
+
+    public Concept(int identifier) {
+        this.identifier = identifier;
         this.parents = Sets.newHashSet();
         this.children = Sets.newHashSet();
-        this.extents = Sets.newHashSet();
-        this.intents = Sets.newHashSet();
+    }
+
+    public int getIdentifier() {
+        return this.identifier;
     }
 
     public void addParent(Concept concept) {
         this.parents.add(concept);
         concept.children.add(this);
+        resetLabels(concept);
     }
 
     public void addChild(Concept concept) {
         this.children.add(concept);
         concept.parents.add(this);
+        resetLabels(concept);
     }
 
     public void removeParent(Concept concept) {
         this.parents.remove(concept);
         concept.children.remove(this);
+        resetLabels(concept);
     }
 
     public void removeChild(Concept concept) {
         this.children.remove(concept);
         concept.parents.remove(this);
+        resetLabels(concept);
+    }
+
+    private void resetLabels(Concept concept) {
+        this.simplifiedExtents = null;
+        this.simplifiedIntents = null;
+        concept.simplifiedExtents = null;
+        concept.simplifiedIntents = null;
+    }
+
+    public void computeLabels() {
+        getSimplifiedExtents();
+        getSimplifiedIntents();
     }
 
     public Set<Concept> getParents() {
@@ -66,15 +90,25 @@ public class Concept {
         return this.children;
     }
 
-    public Set<FcaElement> getExtents() {
-        return this.extents;
+    public abstract Set<FcaElement> getExtents();
+
+    public abstract Set<FcaElement> getIntents();
+
+    public Set<FcaElement> getSimplifiedExtents() {
+        if (this.simplifiedExtents == null) {
+            this.simplifiedExtents = Collections.unmodifiableSet(computeSimplifiedExtents());
+        }
+        return this.simplifiedExtents;
     }
 
-    public Set<FcaElement> getIntents() {
-        return this.intents;
+    public Set<FcaElement> getSimplifiedIntents() {
+        if (this.simplifiedIntents == null) {
+            this.simplifiedIntents = Collections.unmodifiableSet(computeSimplifiedIntents());
+        }
+        return this.simplifiedIntents;
     }
 
-    public Set<FcaElement> getSimplifiedExtents() {
+    protected Set<FcaElement> computeSimplifiedExtents() {
         Set<FcaElement> simplifiedExtents = Sets.newHashSet();
         this.getExtents().forEach(entity -> {
             boolean leafEntity = true;
@@ -90,12 +124,16 @@ public class Concept {
         return simplifiedExtents;
     }
 
-    public boolean isGreaterThan(Concept concept) {
-        return this.extents.containsAll(concept.extents);
+    protected Set<FcaElement> computeSimplifiedIntents() {
+        Set<FcaElement> simplifiedIntents = Sets.newHashSet(this.getIntents());
+        this.parents.forEach(parent -> simplifiedIntents.removeAll(parent.getIntents()));
+        return simplifiedIntents;
     }
 
+    public abstract boolean isGreaterThan(Concept concept);
+
     public boolean isSmallerThan(Concept concept) {
-        return concept.extents.containsAll(this.extents);
+        return concept.isGreaterThan(this);
     }
 
     public boolean isEntity() {
@@ -110,23 +148,4 @@ public class Concept {
         return getSimplifiedExtents().size() < 1;
     }
 
-    @Override
-    public int hashCode() {
-        return this.intents.hashCode() + this.extents.hashCode();
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) {
-            return false;
-        } else if (obj == this) {
-            return true;
-        } else if (!(obj instanceof Concept)) {
-            return false;
-        } else {
-            final Concept other = (Concept) obj;
-            return other.intents.equals(this.intents) && other.extents.equals(this.extents);
-        }
-    }
-
 }
@@ -23,6 +23,7 @@ package fr.labri.mocss.algo.fca;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,6 +33,8 @@ public class Context {
     private Set<FcaElement> attributes;
     private Map<FcaElement, Set<FcaElement>> relations;
     private Map<FcaElement, Set<FcaElement>> reverseRelations;
+    // Whether the relation sets are also the ones of another context, and must be copied before being changed
+    private boolean sharedRelations;
 
     public Context() {
         this.entities = Sets.newLinkedHashSet();
@@ -40,6 +43,25 @@ public class Context {
         this.reverseRelations = Maps.newLinkedHashMap();
     }
 
+    // Subcontext of the given entities and attributes, whose relations must not leave them, sharing the relation sets
+    Context(Context context, Collection<FcaElement> entities, Collection<FcaElement> attributes) {
+        this();
+        entities.forEach(entity -> {
+            this.entities.add(entity);
+            if (context.relations.containsKey(entity)) {
+                this.relations.put(entity, context.relations.get(entity));
+            }
+        });
+        attributes.forEach(attribute -> {
+            this.attributes.add(attribute);
+            if (context.reverseRelations.containsKey(attribute)) {
+                this.reverseRelations.put(attribute, context.reverseRelations.get(attribute));
+            }
+        });
+        this.sharedRelations = true;
+        context.sharedRelations = true;
+    }
+
     public void addEntity(FcaElement entity) {
         this.entities.add(entity);
     }
@@ -49,6 +71,7 @@ public class Context {
     }
 
     public void addRelation(FcaElement entity, FcaElement attribute) {
+        ownRelations();
         if (!this.relations.containsKey(entity)) {
             this.relations.put(entity, Sets.newHashSet());
         }
@@ -60,6 +83,45 @@ public class Context {
         this.reverseRelations.get(attribute).add(entity);
     }
 
+    // Removes an entity and its relations, as well as the attributes that only belonged to it
+    public void removeEntity(FcaElement entity) {
+        removeRelations(entity);
+        this.entities.remove(entity);
+    }
+
+    // Replaces the attributes of an entity, adding it if needed
+    public void setAttributes(FcaElement entity, Set<FcaElement> attributes) {
+        removeRelations(entity);
+        addEntity(entity);
+        attributes.forEach(attribute -> {
+            addAttribute(attribute);
+            addRelation(entity, attribute);
+        });
+    }
+
+    private void removeRelations(FcaElement entity) {
+        ownRelations();
+        Set<FcaElement> attributes = this.relations.remove(entity);
+        if (attributes != null) {
+            attributes.forEach(attribute -> {
+                Set<FcaElement> entities = this.reverseRelations.get(attribute);
+                entities.remove(entity);
+                if (entities.isEmpty()) {
+                    this.reverseRelations.remove(attribute);
+                    this.attributes.remove(attribute);
+                }
+            });
+        }
+    }
+
+    private void ownRelations() {
+        if (this.sharedRelations) {
+            this.relations.replaceAll((entity, attributes) -> Sets.newHashSet(attributes));
+            this.reverseRelations.replaceAll((attribute, entities) -> Sets.newHashSet(entities));
+            this.sharedRelations = false;
+        }
+    }
+
     public Set<FcaElement> getEntities() {
         return this.entities;
     }
@@ -94,16 +156,16 @@ public class Context {
         System.out.println();
 
         System.out.println("Relations:");
-        this.relations.forEach((entity, attributes) ->
-            attributes.forEach(attribute ->
+        this.entities.forEach(entity ->
+            getAttributes(entity).forEach(attribute ->
                             System.out.println("\t" + entity.getIdentifier() + " <=> " + attribute.getIdentifier())
             )
         );
         System.out.println();
 
         System.out.println("Reverse relations:");
-        this.reverseRelations.forEach((entity, attributes) -> {
-            attributes.forEach(attribute ->
+        this.attributes.forEach(entity -> {
+            getEntities(entity).forEach(attribute ->
                             System.out.println("\t" + entity.getIdentifier() + " <=> " + attribute.getIdentifier())
             );
         });
@@ -0,0 +1,88 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Merges entities having the same attributes and attributes having the same entities into representatives
+public class ContextClarification {
+
+    private Context context;
+    private Map<FcaElement, List<FcaElement>> entityClasses;
+    private Map<FcaElement, List<FcaElement>> attributeClasses;
+
+    public ContextClarification(Context context) {
+        this(context, attribute -> null);
+    }
+
+    // Only merges attributes of the same class, so that each representative stands for a single class
+    public ContextClarification(Context context, Function<FcaElement, ?> attributeClass) {
+        this.entityClasses = Maps.newLinkedHashMap();
+        Map<Set<FcaElement>, FcaElement> rows = Maps.newHashMap();
+        context.getEntities().forEach(entity -> {
+            FcaElement representative = rows.computeIfAbsent(context.getAttributes(entity), attributes -> entity);
+            this.entityClasses.computeIfAbsent(representative, key -> Lists.newArrayList()).add(entity);
+        });
+
+        this.attributeClasses = Maps.newLinkedHashMap();
+        Map<List<Object>, FcaElement> columns = Maps.newHashMap();
+        context.getAttributes().forEach(attribute -> {
+            List<Object> column = Arrays.asList(attributeClass.apply(attribute), context.getEntities(attribute));
+            FcaElement representative = columns.computeIfAbsent(column, key -> attribute);
+            this.attributeClasses.computeIfAbsent(representative, key -> Lists.newArrayList()).add(attribute);
+        });
+
+        this.context = new Context();
+        this.entityClasses.keySet().forEach(this.context::addEntity);
+        this.attributeClasses.keySet().forEach(this.context::addAttribute);
+        this.entityClasses.keySet().forEach(entity ->
+                context.getAttributes(entity).stream()
+                        .filter(this.attributeClasses::containsKey)
+                        .forEach(attribute -> this.context.addRelation(entity, attribute))
+        );
+    }
+
+    public Context getContext() {
+        return this.context;
+    }
+
+    public Set<FcaElement> expandEntities(Set<FcaElement> entities) {
+        return expand(entities, this.entityClasses);
+    }
+
+    public Set<FcaElement> expandAttributes(Set<FcaElement> attributes) {
+        return expand(attributes, this.attributeClasses);
+    }
+
+    private static Set<FcaElement> expand(Set<FcaElement> representatives, Map<FcaElement, List<FcaElement>> classes) {
+        Set<FcaElement> result = Sets.newHashSet();
+        representatives.forEach(representative -> result.addAll(classes.get(representative)));
+        return result;
+    }
+
+}
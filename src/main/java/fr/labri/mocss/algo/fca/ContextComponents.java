@@ -0,0 +1,101 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ * Copyright 2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Splits a context into its connected components, two entities being connected when they share an attribute.
+ * The AOC-poset of a context is the disjoint union of the ones of its components, except for the concept
+ * of the entities without attributes: these entities are kept together in a component of their own.
+ * The components share the relation sets of the whole context, which never leave a component, so that the
+ * relations are not copied unless one of the contexts is changed.
+ */
+public class ContextComponents {
+
+    private List<Context> components;
+
+    public ContextComponents(Context context) {
+        List<FcaElement> entities = Lists.newArrayList(context.getEntities());
+        Map<FcaElement, Integer> indexes = Maps.newHashMapWithExpectedSize(entities.size());
+        entities.forEach(entity -> indexes.put(entity, indexes.size()));
+
+        int[] parents = new int[entities.size()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+        }
+        context.getAttributes().forEach(attribute -> {
+            int root = -1;
+            for (FcaElement entity : context.getEntities(attribute)) {
+                int entityRoot = find(parents, indexes.get(entity));
+                if (root < 0) {
+                    root = entityRoot;
+                } else if (entityRoot != root) {
+                    // The smallest index is kept as root so that components follow the order of the entities
+                    parents[Math.max(root, entityRoot)] = Math.min(root, entityRoot);
+                    root = Math.min(root, entityRoot);
+                }
+            }
+        });
+
+        // Entities and attributes of each component, by root
+        Map<Integer, List<FcaElement>> componentEntities = Maps.newLinkedHashMap();
+        Map<Integer, List<FcaElement>> componentAttributes = Maps.newHashMap();
+        Map<FcaElement, Integer> rootsByEntity = Maps.newHashMapWithExpectedSize(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            FcaElement entity = entities.get(i);
+            int root = context.getAttributes(entity).isEmpty() ? -1 : find(parents, i);
+            componentEntities.computeIfAbsent(root, key -> Lists.newArrayList()).add(entity);
+            rootsByEntity.put(entity, root);
+        }
+        context.getAttributes().forEach(attribute -> {
+            Iterator<FcaElement> attributeEntities = context.getEntities(attribute).iterator();
+            if (attributeEntities.hasNext()) {
+                componentAttributes.computeIfAbsent(rootsByEntity.get(attributeEntities.next()),
+                        key -> Lists.newArrayList()).add(attribute);
+            }
+        });
+
+        this.components = Lists.newArrayList();
+        componentEntities.forEach((root, rootEntities) -> this.components.add(new Context(context, rootEntities,
+                componentAttributes.getOrDefault(root, Collections.emptyList()))));
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            // Path halving
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    public List<Context> getComponents() {
+        return this.components;
+    }
+
+}
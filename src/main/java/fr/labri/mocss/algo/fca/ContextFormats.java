@@ -0,0 +1,231 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Export and import of contexts, one entity at a time, in two formats:
+ * - the Burmeister format (.cxt) of the FCA tools, with a row of 'X' and '.' per entity;
+ * - a binary format, with the attributes of each entity as delta-encoded variable-length indexes.
+ * Imported entities and attributes are NamedElements holding the identifiers of the exported ones.
+ */
+public final class ContextFormats {
+
+    private static final int MAGIC = 0x4d4f4358;
+    private static final int VERSION = 1;
+
+    // Burmeister format for .cxt files, binary format otherwise
+    public static void write(Context context, File file) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            if (isBurmeister(file)) {
+                writeBurmeister(context, new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            } else {
+                writeBinary(context, output);
+            }
+        }
+    }
+
+    public static Context read(File file) throws IOException {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+            if (isBurmeister(file)) {
+                return readBurmeister(new InputStreamReader(input, StandardCharsets.UTF_8));
+            } else {
+                return readBinary(input);
+            }
+        }
+    }
+
+    private static boolean isBurmeister(File file) {
+        return file.getName().toLowerCase().endsWith(".cxt");
+    }
+
+    public static void writeBurmeister(Context context, Writer writer) throws IOException {
+        BufferedWriter output = new BufferedWriter(writer);
+        output.write("B\n\n" + context.getEntities().size() + "\n" + context.getAttributes().size() + "\n\n");
+        for (FcaElement entity : context.getEntities()) {
+            output.write(name(entity));
+            output.write('\n');
+        }
+        for (FcaElement attribute : context.getAttributes()) {
+            output.write(name(attribute));
+            output.write('\n');
+        }
+        List<FcaElement> attributes = Lists.newArrayList(context.getAttributes());
+        char[] row = new char[attributes.size()];
+        for (FcaElement entity : context.getEntities()) {
+            for (int attribute = 0; attribute < row.length; attribute++) {
+                row[attribute] = context.getAttributes(entity).contains(attributes.get(attribute)) ? 'X' : '.';
+            }
+            output.write(row);
+            output.write('\n');
+        }
+        output.flush();
+    }
+
+    public static Context readBurmeister(Reader reader) throws IOException {
+        BufferedReader input = new BufferedReader(reader);
+        String header = input.readLine();
+        if (header == null || !header.trim().equals("B")) {
+            throw new IOException("not a Burmeister context");
+        }
+        // The name of the context is optional, the numbers of entities and attributes follow
+        String line = nextLine(input);
+        if (!isNumber(line)) {
+            line = nextLine(input);
+        }
+        int entitiesNb = Integer.parseInt(line.trim());
+        int attributesNb = Integer.parseInt(nextLine(input).trim());
+
+        // Blank lines may precede the names, but not separate them
+        List<FcaElement> elements = Lists.newArrayListWithCapacity(entitiesNb + attributesNb);
+        for (int i = 0; i < entitiesNb + attributesNb; i++) {
+            elements.add(new FcaElement(new NamedElement(i == 0 ? nextLine(input) : requireLine(input))));
+        }
+        List<FcaElement> entities = elements.subList(0, entitiesNb);
+        List<FcaElement> attributes = elements.subList(entitiesNb, elements.size());
+
+        Context context = new Context();
+        for (FcaElement entity : entities) {
+            requireNew(context.getEntities(), entity, "entity");
+            context.addEntity(entity);
+        }
+        for (FcaElement attribute : attributes) {
+            requireNew(context.getAttributes(), attribute, "attribute");
+            context.addAttribute(attribute);
+        }
+        for (int i = 0; i < entitiesNb && attributesNb > 0; i++) {
+            FcaElement entity = entities.get(i);
+            String row = nextLine(input);
+            for (int attribute = 0; attribute < attributesNb && attribute < row.length(); attribute++) {
+                char value = row.charAt(attribute);
+                if (value == 'X' || value == 'x') {
+                    context.addRelation(entity, attributes.get(attribute));
+                }
+            }
+        }
+        return context;
+    }
+
+    public static void writeBinary(Context context, OutputStream stream) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        VarInts.write(output, context.getEntities().size());
+        VarInts.write(output, context.getAttributes().size());
+        Map<FcaElement, Integer> attributeIndexes = Maps.newHashMapWithExpectedSize(context.getAttributes().size());
+        for (FcaElement attribute : context.getAttributes()) {
+            attributeIndexes.put(attribute, attributeIndexes.size());
+            VarInts.writeString(output, attribute.getIdentifier());
+        }
+        for (FcaElement entity : context.getEntities()) {
+            VarInts.writeString(output, entity.getIdentifier());
+            int[] indexes = context.getAttributes(entity).stream().mapToInt(attributeIndexes::get).toArray();
+            Arrays.sort(indexes);
+            VarInts.writeSorted(output, indexes);
+        }
+        output.flush();
+    }
+
+    public static Context readBinary(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("not a binary context");
+        }
+        int entitiesNb = VarInts.read(input);
+        int attributesNb = VarInts.read(input);
+        List<FcaElement> attributes = Lists.newArrayListWithCapacity(attributesNb);
+        Context context = new Context();
+        for (int attribute = 0; attribute < attributesNb; attribute++) {
+            attributes.add(new FcaElement(new NamedElement(VarInts.readString(input))));
+            requireNew(context.getAttributes(), attributes.get(attribute), "attribute");
+            context.addAttribute(attributes.get(attribute));
+        }
+        for (int i = 0; i < entitiesNb; i++) {
+            FcaElement entity = new FcaElement(new NamedElement(VarInts.readString(input)));
+            requireNew(context.getEntities(), entity, "entity");
+            context.addEntity(entity);
+            for (int attribute : VarInts.readSorted(input)) {
+                context.addRelation(entity, attributes.get(attribute));
+            }
+        }
+        return context;
+    }
+
+    // Elements are told apart by their names, which must then be unique
+    private static void requireNew(Set<FcaElement> elements, FcaElement element, String kind) throws IOException {
+        if (elements.contains(element)) {
+            throw new IOException("duplicate " + kind + " name in the context: " + element.getIdentifier());
+        }
+    }
+
+    // Names of the Burmeister format are single lines
+    private static String name(FcaElement element) {
+        return element.getIdentifier().replaceAll("[\\r\\n]+", " ");
+    }
+
+    private static boolean isNumber(String line) {
+        return line.trim().matches("\\d+");
+    }
+
+    // Next line which is not blank
+    private static String nextLine(BufferedReader input) throws IOException {
+        String line = requireLine(input);
+        while (line.trim().isEmpty()) {
+            line = requireLine(input);
+        }
+        return line;
+    }
+
+    private static String requireLine(BufferedReader input) throws IOException {
+        String line = input.readLine();
+        if (line == null) {
+            throw new IOException("unexpected end of the Burmeister context");
+        }
+        return line;
+    }
+
+    private ContextFormats() {}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Removes the attributes owned by a single entity before computing the concepts.
+ * Such an attribute only belongs to the intent of the object concept of its entity,
+ * so it can never be factorized. It is kept in the context only when it is needed
+ * to tell its entity apart, one attribute per entity being enough.
+ */
+public class ContextPruning {
+
+    private Context context;
+    private Map<FcaElement, List<FcaElement>> prunedAttributes;
+    private int prunedAttributesNb;
+
+    public ContextPruning(Context context) {
+        this.prunedAttributes = Maps.newHashMap();
+        this.prunedAttributesNb = 0;
+
+        Set<FcaElement> removedAttributes = Sets.newHashSet();
+        context.getEntities().forEach(entity -> {
+            List<FcaElement> ownAttributes = Lists.newArrayList();
+            Set<FcaElement> sharedAttributes = Sets.newHashSet();
+            context.getAttributes(entity).forEach(attribute -> {
+                if (context.getEntities(attribute).size() == 1) {
+                    ownAttributes.add(attribute);
+                } else {
+                    sharedAttributes.add(attribute);
+                }
+            });
+            if (!ownAttributes.isEmpty()) {
+                if (!isIdentifiedBy(entity, sharedAttributes, context)) {
+                    ownAttributes.remove(0);
+                }
+                removedAttributes.addAll(ownAttributes);
+                this.prunedAttributes.put(entity, ownAttributes);
+                this.prunedAttributesNb += ownAttributes.size();
+            }
+        });
+
+        this.context = new Context();
+        context.getEntities().forEach(this.context::addEntity);
+        context.getAttributes().stream()
+                .filter(attribute -> !removedAttributes.contains(attribute))
+                .forEach(this.context::addAttribute);
+        context.getEntities().forEach(entity ->
+                context.getAttributes(entity).stream()
+                        .filter(attribute -> !removedAttributes.contains(attribute))
+                        .forEach(attribute -> this.context.addRelation(entity, attribute))
+        );
+    }
+
+    // Tests whether entity is the only one having all the given attributes
+    private static boolean isIdentifiedBy(FcaElement entity, Set<FcaElement> attributes, Context context) {
+        if (attributes.isEmpty()) {
+            return context.getEntities().size() == 1;
+        }
+        List<Set<FcaElement>> extents = Lists.newArrayList();
+        attributes.forEach(attribute -> extents.add(context.getEntities(attribute)));
+        extents.sort(Comparator.comparingInt(Set::size));
+        Set<FcaElement> entities = Sets.newHashSet(extents.get(0));
+        for (Set<FcaElement> extent : extents) {
+            entities.retainAll(extent);
+            if (entities.size() == 1) {
+                return true;
+            }
+        }
+        return entities.size() == 1;
+    }
+
+    public Context getContext() {
+        return this.context;
+    }
+
+    public int prunedAttributesNb() {
+        return this.prunedAttributesNb;
+    }
+
+    public Set<FcaElement> expandAttributes(Set<FcaElement> extents, Set<FcaElement> intents) {
+        if (extents.size() == 1) {
+            List<FcaElement> ownAttributes = this.prunedAttributes.get(extents.iterator().next());
+            if (ownAttributes != null) {
+                Set<FcaElement> result = Sets.newHashSet(intents);
+                result.addAll(ownAttributes);
+                return result;
+            }
+        } else if (extents.isEmpty()) {
+            Set<FcaElement> result = Sets.newHashSet(intents);
+            this.prunedAttributes.values().forEach(result::addAll);
+            return result;
+        }
+        return intents;
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo.fca;
+
+/*
+ * Choice of the poset algorithm of a context from the memory it needs and from the available heap.
+ * The memory of each algorithm is estimated from the numbers of entities, attributes, relations and
+ * candidate concepts: dense bitsets are the fastest as long as their matrices fit in the heap, sorted lists
+ * only grow with the relations, and memory-mapped matrices do not use the heap at all. The density is not
+ * used by itself, it is only logged along with the estimates since it explains the gap between them.
+ */
+public class ExecutionPlan {
+
+    public enum Strategy { hermes, sparse, outOfCore }
+
+    // Share of the available heap an algorithm may use, the rest being left to the lattice and the statements
+    private static final double HEAP_SHARE = 0.5;
+
+    private final int entitiesNb;
+    private final int attributesNb;
+    private final long relationsNb;
+    private final long hermesBytes;
+    private final long sparseBytes;
+    private final long availableBytes;
+    private final Strategy strategy;
+
+    private ExecutionPlan(Context context, long availableBytes) {
+        this.entitiesNb = context.getEntities().size();
+        this.attributesNb = context.getAttributes().size();
+        this.relationsNb = context.getEntities().stream().mapToLong(entity -> context.getAttributes(entity).size()).sum();
+        this.availableBytes = availableBytes;
+
+        long conceptsNb = this.entitiesNb + this.attributesNb;
+        // Relations in both directions, extents and intents of the concepts, concepts of each entity and greaters
+        this.hermesBytes = (2L * this.entitiesNb * this.attributesNb + conceptsNb * conceptsNb
+                + conceptsNb * conceptsNb / 2 + this.entitiesNb * conceptsNb) / 8;
+        // Relations in both directions and for the concepts, inverted extents of the concepts, and objects
+        this.sparseBytes = 4 * (2 * this.relationsNb + 4 * this.relationsNb) + 128 * conceptsNb;
+
+        long allowedBytes = (long) (availableBytes * HEAP_SHARE);
+        if (this.hermesBytes <= allowedBytes) {
+            this.strategy = Strategy.hermes;
+        } else if (this.sparseBytes <= allowedBytes) {
+            this.strategy = Strategy.sparse;
+        } else {
+            this.strategy = Strategy.outOfCore;
+        }
+    }
+
+    public static ExecutionPlan of(Context context, long availableBytes) {
+        return new ExecutionPlan(context, availableBytes);
+    }
+
+    // Heap which is not used yet, shared between the given number of concurrent computations
+    public static long availableBytes(int concurrentNb) {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) / Math.max(1, concurrentNb);
+    }
+
+    public Strategy getStrategy() {
+        return this.strategy;
+    }
+
+    public long relationsNb() {
+        return this.relationsNb;
+    }
+
+    public double density() {
+        return this.entitiesNb == 0 || this.attributesNb == 0
+                ? 0 : (double) this.relationsNb / this.entitiesNb / this.attributesNb;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{strategy: %s; entities: %d; attributes: %d; density: %.4f; "
+                        + "hermes memory: %d MB; sparse memory: %d MB; available memory: %d MB}",
+                this.strategy, this.entitiesNb, this.attributesNb, density(),
+                this.hermesBytes >> 20, this.sparseBytes >> 20, this.availableBytes >> 20);
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ * Copyright 2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Concepts of the lattice whose extents have at least a minimum number of entities (an iceberg lattice),
+ * computed with Fast Close-by-One, plus the concepts of the entities so that every entity keeps its node.
+ * Each concept is closed by adding one attribute at a time in increasing order, and only kept when the
+ * closure adds no smaller attribute. Closures already found to fail this test are inherited by the
+ * following siblings to skip them. The search runs on an explicit stack of branches, the closures of the
+ * attributes of a branch being independent tasks.
+ */
+public class FcboLattice implements GshAlgorithm {
+
+    private BitSetContext context;
+    private int extentsMinNb;
+    private ForkJoinPool pool;
+    private Set<Concept> concepts;
+
+    public FcboLattice(BitSetContext context, int extentsMinNb) {
+        this(context, extentsMinNb, null);
+    }
+
+    public FcboLattice(BitSetContext context, int extentsMinNb, ForkJoinPool pool) {
+        this.context = context;
+        this.extentsMinNb = Math.max(1, extentsMinNb);
+        this.pool = pool;
+    }
+
+    @Override
+    public void compute() {
+        this.concepts = Sets.newHashSet();
+
+        long[] extents = Bitsets.full(this.context.entitiesNb());
+        List<long[][]> latticeConcepts = Lists.newArrayList();
+        if (Bitsets.cardinality(extents) >= this.extentsMinNb) {
+            latticeConcepts = generate(new Branch(extents, closure(extents), 0, new long[this.context.attributesNb()][]));
+        }
+        for (int i = 0; i < latticeConcepts.size(); i++) {
+            long[][] concept = latticeConcepts.get(i);
+            // Concepts without intents factorize nothing
+            if (!Bitsets.isEmpty(concept[1])) {
+                this.concepts.add(new BitSetConcept(i, this.context, concept[0], concept[1]));
+            }
+        }
+        for (int entity = 0; entity < this.context.entitiesNb(); entity++) {
+            long[] intents = this.context.getAttributes(entity).clone();
+            this.concepts.add(new BitSetConcept(latticeConcepts.size() + entity, this.context, extents(intents), intents));
+        }
+
+        List<BitSetConcept> orderedConcepts = Lists.newArrayListWithCapacity(this.concepts.size());
+        this.concepts.forEach(concept -> orderedConcepts.add((BitSetConcept) concept));
+        orderedConcepts.sort(Comparator.comparingInt(
+                (BitSetConcept concept) -> Bitsets.cardinality(concept.getExtentsBits())).reversed());
+        link(orderedConcepts);
+
+        // Own extents and intents are computed once the concepts are linked
+        ParallelTasks.forEach(this.pool, orderedConcepts.size(), i -> orderedConcepts.get(i).computeLabels());
+    }
+
+    // Concepts of a branch, as pairs of extents and intents, in depth-first order
+    private List<long[][]> generate(Branch root) {
+        List<long[][]> concepts = Lists.newArrayList();
+        Deque<Branch> branches = new ArrayDeque<>();
+        branches.push(root);
+        while (!branches.isEmpty()) {
+            Branch branch = branches.pop();
+            concepts.add(new long[][] { branch.extents, branch.intents });
+            List<Branch> children = children(branch);
+            for (int i = children.size() - 1; i >= 0; i--) {
+                branches.push(children.get(i));
+            }
+        }
+        return concepts;
+    }
+
+    // The closures of the attributes are independent tasks, the canonicity test of each only reading its own failure
+    private List<Branch> children(Branch branch) {
+        List<Branch> children = Lists.newArrayList();
+        if (branch.attribute >= this.context.attributesNb()) {
+            return children;
+        }
+
+        long[][] failures = branch.failures.clone();
+        List<long[][]> closures = ParallelTasks.map(this.pool, this.context.attributesNb() - branch.attribute, i -> {
+            int attribute = branch.attribute + i;
+            if (Bitsets.get(branch.intents, attribute)
+                    || (failures[attribute] != null
+                    && !Bitsets.containsAllBefore(branch.intents, failures[attribute], attribute))) {
+                return null;
+            }
+            long[] extents = branch.extents.clone();
+            Bitsets.and(extents, this.context.getEntities(attribute));
+            if (Bitsets.cardinality(extents) < this.extentsMinNb) {
+                return null;
+            }
+            return new long[][] { extents, closure(extents) };
+        });
+        for (int i = 0; i < closures.size(); i++) {
+            long[][] closure = closures.get(i);
+            int attribute = branch.attribute + i;
+            if (closure == null) {
+                continue;
+            }
+            if (Bitsets.equalsBefore(branch.intents, closure[1], attribute)) {
+                children.add(new Branch(closure[0], closure[1], attribute + 1, failures));
+            } else {
+                failures[attribute] = closure[1];
+            }
+        }
+        return children;
+    }
+
+    private long[] closure(long[] extents) {
+        long[] intents = Bitsets.full(this.context.attributesNb());
+        for (int entity = Bitsets.nextSetBit(extents, 0); entity >= 0; entity = Bitsets.nextSetBit(extents, entity + 1)) {
+            Bitsets.and(intents, this.context.getAttributes(entity));
+        }
+        return intents;
+    }
+
+    private long[] extents(long[] intents) {
+        long[] extents = Bitsets.full(this.context.entitiesNb());
+        for (int attribute = Bitsets.nextSetBit(intents, 0); attribute >= 0; attribute = Bitsets.nextSetBit(intents, attribute + 1)) {
+            Bitsets.and(extents, this.context.getEntities(attribute));
+        }
+        return extents;
+    }
+
+    /*
+     * Concepts are sorted by decreasing extent size, and each entity lists the concepts holding it in this order.
+     * The concepts greater than a concept precede it in the lists of all its entities. They are visited by
+     * increasing extent size: a candidate not marked yet is a cover, and the candidates greater than this cover,
+     * those also in the lists of its other entities, are marked.
+     */
+    private void link(List<BitSetConcept> orderedConcepts) {
+        int conceptsNb = orderedConcepts.size();
+        List<int[]> extents = Lists.newArrayListWithCapacity(conceptsNb);
+        orderedConcepts.forEach(concept -> extents.add(ids(concept.getExtentsBits())));
+        PostingLists conceptsByEntity = PostingLists.of(extents).transpose(this.context.entitiesNb());
+
+        List<List<BitSetConcept>> covers = ParallelTasks.map(this.pool, conceptsNb, i -> {
+            // The concept itself is the last one
+            int[] greaters = conceptsByEntity.intersect(extents.get(i));
+            boolean[] marked = new boolean[greaters.length - 1];
+            List<BitSetConcept> conceptCovers = Lists.newArrayList();
+            for (int j = greaters.length - 2; j >= 0; j--) {
+                if (marked[j]) {
+                    continue;
+                }
+                BitSetConcept cover = orderedConcepts.get(greaters[j]);
+                conceptCovers.add(cover);
+                long[] otherEntities = cover.getExtentsBits().clone();
+                Bitsets.andNot(otherEntities, orderedConcepts.get(i).getExtentsBits());
+                int[] coverGreaters = conceptsByEntity.intersect(ids(otherEntities));
+                for (int k = 0, l = 0; k < j && l < coverGreaters.length; ) {
+                    if (greaters[k] < coverGreaters[l]) {
+                        k++;
+                    } else if (greaters[k] > coverGreaters[l]) {
+                        l++;
+                    } else {
+                        marked[k++] = true;
+                        l++;
+                    }
+                }
+            }
+            return conceptCovers;
+        });
+        for (int i = 0; i < conceptsNb; i++) {
+            covers.get(i).forEach(orderedConcepts.get(i)::addParent);
+        }
+    }
+
+    private static int[] ids(long[] bits) {
+        int[] ids = new int[Bitsets.cardinality(bits)];
+        int i = 0;
+        for (int id = Bitsets.nextSetBit(bits, 0); id >= 0; id = Bitsets.nextSetBit(bits, id + 1)) {
+            ids[i++] = id;
+        }
+        return ids;
+    }
+
+    @Override
+    public Set<Concept> getConcepts() {
+        return this.concepts;
+    }
+
+    private static class Branch {
+
+        private final long[] extents;
+        private final long[] intents;
+        // First attribute that can be added
+        private final int attribute;
+        // Closures that failed the canonicity test in the parent branch, by attribute
+        private final long[][] failures;
+
+        Branch(long[] extents, long[] intents, int attribute, long[][] failures) {
+            this.extents = extents;
+            this.intents = intents;
+            this.attribute = attribute;
+            this.failures = failures;
+        }
+
+    }
+
+}
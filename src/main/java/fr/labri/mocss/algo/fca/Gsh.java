@@ -20,65 +20,197 @@
 
 package fr.labri.mocss.algo.fca;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
-public class Gsh {
+public class Gsh implements GshAlgorithm {
 
     private Context context;
+    private ForkJoinPool pool;
     private Set<Concept> concepts;
+    private Map<FcaElement, Concept> entityConcepts;
+    private Map<FcaElement, Concept> attributeConcepts;
+    private int identifiersNb;
 
     public Gsh(Context context) {
+        this(context, null);
+    }
+
+    public Gsh(Context context, ForkJoinPool pool) {
         this.context = context;
+        this.pool = pool;
     }
 
+    @Override
     public void compute() {
         this.concepts = Sets.newHashSet();
 
-        this.context.getEntities().forEach(entity -> this.concepts.add(u(entity)));
-        this.context.getAttributes().forEach(attribute -> this.concepts.add(v(attribute)));
+        List<FcaElement> entities = Lists.newArrayList(this.context.getEntities());
+        List<FcaElement> attributes = Lists.newArrayList(this.context.getAttributes());
+        List<Concept> entityConcepts = ParallelTasks.map(this.pool, entities.size(), i -> u(i, entities.get(i)));
+        List<Concept> attributeConcepts = ParallelTasks.map(this.pool, attributes.size(), i -> v(entities.size() + i, attributes.get(i)));
+        this.concepts.addAll(entityConcepts);
+        this.concepts.addAll(attributeConcepts);
+
+        // Concepts of the entities and attributes, kept for incremental updates
+        this.identifiersNb = entities.size() + attributes.size();
+        Map<Concept, Concept> instances = Maps.newHashMapWithExpectedSize(this.concepts.size());
+        this.entityConcepts = Maps.newHashMapWithExpectedSize(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            this.entityConcepts.put(entities.get(i), instances.computeIfAbsent(entityConcepts.get(i), concept -> concept));
+        }
+        this.attributeConcepts = Maps.newHashMapWithExpectedSize(attributes.size());
+        for (int i = 0; i < attributes.size(); i++) {
+            this.attributeConcepts.put(attributes.get(i), instances.computeIfAbsent(attributeConcepts.get(i), concept -> concept));
+        }
+
+        // Concepts are sorted by decreasing extent size: the concepts greater than a concept all come before it
+        List<Concept> concepts = Lists.newArrayList(this.concepts);
+        concepts.sort(Comparator.comparingInt((Concept concept) -> concept.getExtents().size()).reversed());
+        List<List<Concept>> covers = ParallelTasks.map(this.pool, concepts.size(), i -> covers(i, concepts));
+        for (int i = 0; i < concepts.size(); i++) {
+            covers.get(i).forEach(concepts.get(i)::addParent);
+        }
+
+        // Own extents and intents are computed once the concepts are linked
+        ParallelTasks.forEach(this.pool, concepts.size(), i -> concepts.get(i).computeLabels());
+    }
+
+    public void addEntity(FcaElement entity, Set<FcaElement> attributes) {
+        replaceEntity(entity, attributes);
+    }
+
+    public void replaceEntity(FcaElement entity, Set<FcaElement> attributes) {
+        Set<FcaElement> changedAttributes = Sets.newHashSet(this.context.getAttributes(entity));
+        changedAttributes.addAll(attributes);
+        this.context.setAttributes(entity, attributes);
+        update(changedAttributes);
+    }
+
+    public void removeEntity(FcaElement entity) {
+        Set<FcaElement> changedAttributes = Sets.newHashSet(this.context.getAttributes(entity));
+        this.context.removeEntity(entity);
+        update(changedAttributes);
+    }
+
+    /*
+     * Only the extents of the concepts having a changed attribute in their intents, or no intents at all,
+     * can change. These concepts are replaced by the new concepts of their entities and attributes,
+     * then covers are computed again for the new concepts, the concepts below them, and the children
+     * of the replaced concepts.
+     */
+    private void update(Set<FcaElement> changedAttributes) {
+        Set<Concept> removedConcepts = Sets.newIdentityHashSet();
+        this.concepts.stream()
+                .filter(concept -> concept.getIntents().isEmpty()
+                        || !Collections.disjoint(concept.getIntents(), changedAttributes))
+                .forEach(removedConcepts::add);
+        this.concepts.removeAll(removedConcepts);
+
+        Set<Concept> updatedConcepts = Sets.newHashSet();
+        removedConcepts.forEach(concept -> {
+            Lists.newArrayList(concept.getParents()).forEach(concept::removeParent);
+            Lists.newArrayList(concept.getChildren()).forEach(child -> {
+                concept.removeChild(child);
+                if (!removedConcepts.contains(child)) {
+                    updatedConcepts.add(child);
+                }
+            });
+        });
 
+        Map<Concept, Concept> instances = Maps.newHashMapWithExpectedSize(this.concepts.size());
+        this.concepts.forEach(concept -> instances.put(concept, concept));
         Set<Concept> addedConcepts = Sets.newHashSet();
-        this.concepts.forEach(concept -> add(concept, addedConcepts));
+        this.entityConcepts.keySet().retainAll(this.context.getEntities());
+        this.context.getEntities().forEach(entity -> {
+            Concept concept = this.entityConcepts.get(entity);
+            if (concept == null || removedConcepts.contains(concept)) {
+                this.entityConcepts.put(entity, instances.computeIfAbsent(u(this.identifiersNb++, entity), added -> {
+                    addedConcepts.add(added);
+                    return added;
+                }));
+            }
+        });
+        this.attributeConcepts.keySet().retainAll(this.context.getAttributes());
+        this.context.getAttributes().forEach(attribute -> {
+            Concept concept = this.attributeConcepts.get(attribute);
+            if (concept == null || removedConcepts.contains(concept)) {
+                this.attributeConcepts.put(attribute, instances.computeIfAbsent(v(this.identifiersNb++, attribute), added -> {
+                    addedConcepts.add(added);
+                    return added;
+                }));
+            }
+        });
+        this.concepts.addAll(addedConcepts);
+
+        updatedConcepts.addAll(addedConcepts);
+        addedConcepts.forEach(added -> this.concepts.forEach(concept -> {
+            if (concept != added && added.isGreaterThan(concept)) {
+                updatedConcepts.add(concept);
+            }
+        }));
+
+        List<Concept> concepts = Lists.newArrayList(updatedConcepts);
+        List<Set<Concept>> parents = ParallelTasks.map(this.pool, concepts.size(), i ->
+                selectSmallest(allGreaters(concepts.get(i)))
+        );
+        for (int i = 0; i < concepts.size(); i++) {
+            Concept concept = concepts.get(i);
+            Lists.newArrayList(concept.getParents()).forEach(concept::removeParent);
+            parents.get(i).forEach(concept::addParent);
+        }
     }
 
-    private Concept u(FcaElement entity) {
-        Concept concept = new Concept();
-        concept.getIntents().addAll(this.context.getAttributes(entity));
+    private Concept u(int identifier, FcaElement entity) {
+        Set<FcaElement> intents = Sets.newHashSet();
+        intents.addAll(this.context.getAttributes(entity));
         Set<FcaElement> extents = Sets.newHashSet();
         extents.addAll(this.context.getEntities());
         this.context.getAttributes(entity).forEach(attribute ->
                 extents.retainAll(this.context.getEntities(attribute))
         );
-        concept.getExtents().addAll(extents);
-        return concept;
+        Set<FcaElement> conceptExtents = Sets.newHashSet();
+        conceptExtents.addAll(extents);
+        return new SetConcept(identifier, conceptExtents, intents);
     }
 
-    private Concept v(FcaElement attribute) {
-        Concept concept = new Concept();
-        concept.getExtents().addAll(this.context.getEntities(attribute));
+    private Concept v(int identifier, FcaElement attribute) {
+        Set<FcaElement> extents = Sets.newHashSet();
+        extents.addAll(this.context.getEntities(attribute));
         Set<FcaElement> intents = Sets.newHashSet();
         intents.addAll(this.context.getAttributes());
         this.context.getEntities(attribute).forEach(entity ->
             intents.retainAll(this.context.getAttributes(entity))
         );
-        concept.getIntents().addAll(intents);
-        return concept;
+        Set<FcaElement> conceptIntents = Sets.newHashSet();
+        conceptIntents.addAll(intents);
+        return new SetConcept(identifier, extents, conceptIntents);
     }
 
-    private void add(Concept concept, Set<Concept> addedConcepts) {
-        if (!addedConcepts.contains(concept)) {
-            Set<Concept> allParents = allGreaters(concept);
-            allParents.forEach(parent -> {
-                if (!addedConcepts.contains(parent)) {
-                    add(parent, addedConcepts);
-                }
-            });
-            addedConcepts.add(concept);
-            Set<Concept> smallestParents = selectSmallest(allParents);
-            smallestParents.forEach(concept::addParent);
+    /*
+     * Closest concepts greater than the given one. Candidates are visited by increasing extent size,
+     * so a candidate greater than none of the covers found so far is a cover.
+     */
+    private static List<Concept> covers(int index, List<Concept> orderedConcepts) {
+        Concept concept = orderedConcepts.get(index);
+        int extentsNb = concept.getExtents().size();
+        List<Concept> covers = Lists.newArrayList();
+        for (int i = index - 1; i >= 0; i--) {
+            Concept candidate = orderedConcepts.get(i);
+            if (candidate.getExtents().size() > extentsNb && candidate.isGreaterThan(concept)
+                    && covers.stream().noneMatch(candidate::isGreaterThan)) {
+                covers.add(candidate);
+            }
         }
+        return covers;
     }
 
     private Set<Concept> allGreaters(Concept concept) {
@@ -112,6 +244,7 @@ public class Gsh {
         smallests.add(concept);
     }
 
+    @Override
     public Set<Concept> getConcepts() {
         return this.concepts;
     }
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo.fca;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * Runs the poset algorithms on a context read from a .cxt or binary file, as exported by --export-context,
+ * and prints the number of concepts they find and the time they take. The mapped algorithm keeps its matrices
+ * in the temporary directory, and fcbo computes the iceberg lattice of the concepts of at least 2 entities.
+ * Usage: GshBenchmark <context file> [reference|bitsets|sparse|hermes|mapped|fcbo]...
+ */
+public class GshBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: GshBenchmark <context file> [reference|bitsets|sparse|hermes|mapped|fcbo]...");
+            System.exit(1);
+        }
+
+        Context context = ContextFormats.read(new File(args[0]));
+        System.out.println(String.format("%s: {entities: %d; attributes: %d}",
+                args[0], context.getEntities().size(), context.getAttributes().size()));
+
+        List<String> algorithms = args.length > 1
+                ? Arrays.asList(args).subList(1, args.length)
+                : Arrays.asList("reference", "bitsets", "sparse", "hermes", "mapped", "fcbo");
+        for (String algorithm : algorithms) {
+            GshAlgorithm gsh = algorithm(algorithm).apply(context);
+            long start = System.nanoTime();
+            gsh.compute();
+            long time = (System.nanoTime() - start) / 1000000;
+            System.out.println(String.format("%s: {concepts: %d; time: %d ms}",
+                    algorithm, gsh.getConcepts().size(), time));
+        }
+    }
+
+    private static Function<Context, GshAlgorithm> algorithm(String name) {
+        switch (name) {
+            case "reference":
+                return Gsh::new;
+            case "bitsets":
+                return context -> new BitSetGsh(new BitSetContext(context));
+            case "sparse":
+                return context -> new SparseGsh(new SparseContext(context));
+            case "hermes":
+                return context -> new HermesGsh(new BitSetContext(context));
+            case "mapped":
+                return context -> new MappedGsh(
+                        new MappedContext(context, new File(System.getProperty("java.io.tmpdir"))));
+            case "fcbo":
+                return context -> new FcboLattice(new BitSetContext(context), 2);
+            default:
+                throw new IllegalArgumentException("unknown algorithm: " + name);
+        }
+    }
+
+}
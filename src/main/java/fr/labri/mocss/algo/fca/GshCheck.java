@@ -0,0 +1,48 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Map;
+import java.util.Set;
+
+// Compares posets built by different algorithms, whatever the representation of their concepts
+public class GshCheck {
+
+    public static boolean isSamePoset(Set<Concept> concepts, Set<Concept> otherConcepts) {
+        return concepts.size() == otherConcepts.size() && describe(concepts).equals(describe(otherConcepts));
+    }
+
+    // Maps the extents of each concept to its intents and to the extents of its parents
+    private static Map<Set<FcaElement>, Pair<Set<FcaElement>, Set<Set<FcaElement>>>> describe(Set<Concept> concepts) {
+        Map<Set<FcaElement>, Pair<Set<FcaElement>, Set<Set<FcaElement>>>> description = Maps.newHashMap();
+        concepts.forEach(concept -> {
+            Set<Set<FcaElement>> parents = Sets.newHashSet();
+            concept.getParents().forEach(parent -> parents.add(parent.getExtents()));
+            description.put(concept.getExtents(), new ImmutablePair<>(concept.getIntents(), parents));
+        });
+        return description;
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToLongFunction;
+
+/*
+ * Hermes-style construction of the GSH on dense bitsets.
+ * Concepts are sorted by decreasing extent size, so the concepts greater than a concept
+ * all come before it. They are found by intersecting, for each entity of its extent,
+ * the bitset of the concepts containing this entity. The covers are then picked among
+ * them by increasing extent size, skipping those already greater than a picked cover.
+ * Attribute concepts are built and ordered block by block. Once the given time out is reached, the remaining
+ * attribute concepts are dropped, or only counted when not built yet, and only the object concepts are still
+ * ordered, so that every entity is kept.
+ * With a maximum number of candidates, only the attribute concepts of the best scores are kept, and ordered,
+ * along with the object concepts. They are scored block by block as they are built.
+ */
+public class HermesGsh implements GshAlgorithm {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private BitSetContext context;
+    private ForkJoinPool pool;
+    private BooleanSupplier timeOut;
+    private int candidatesMaxNb;
+    private ToLongFunction<Concept> score;
+    private Set<Concept> concepts;
+    private int candidatesNb;
+
+    public HermesGsh(BitSetContext context) {
+        this(context, null);
+    }
+
+    public HermesGsh(BitSetContext context, ForkJoinPool pool) {
+        this(context, pool, () -> false);
+    }
+
+    public HermesGsh(BitSetContext context, ForkJoinPool pool, BooleanSupplier timeOut) {
+        this(context, pool, timeOut, 0, concept -> 0);
+    }
+
+    // A maximum number of 0 keeps every attribute concept
+    public HermesGsh(BitSetContext context, ForkJoinPool pool, BooleanSupplier timeOut,
+                     int candidatesMaxNb, ToLongFunction<Concept> score) {
+        this.context = context;
+        this.pool = pool;
+        this.timeOut = timeOut;
+        this.candidatesMaxNb = candidatesMaxNb;
+        this.score = score;
+    }
+
+    @Override
+    public void compute() {
+        this.concepts = Sets.newHashSet();
+
+        this.concepts.addAll(ParallelTasks.map(this.pool, this.context.entitiesNb(), this::u));
+        if (this.candidatesMaxNb > 0) {
+            addBestAttributeConcepts();
+        } else {
+            addAttributeConcepts();
+        }
+
+        List<BitSetConcept> orderedConcepts = Lists.newArrayListWithCapacity(this.concepts.size());
+        this.concepts.forEach(concept -> orderedConcepts.add((BitSetConcept) concept));
+        orderedConcepts.sort(Comparator.comparingInt(
+                (BitSetConcept concept) -> Bitsets.cardinality(concept.getExtentsBits())).reversed());
+
+        int conceptsNb = orderedConcepts.size();
+        long[][] conceptsByEntity = new long[this.context.entitiesNb()][Bitsets.words(conceptsNb)];
+        for (int i = 0; i < conceptsNb; i++) {
+            long[] extents = orderedConcepts.get(i).getExtentsBits();
+            for (int entity = Bitsets.nextSetBit(extents, 0); entity >= 0; entity = Bitsets.nextSetBit(extents, entity + 1)) {
+                Bitsets.set(conceptsByEntity[entity], i);
+            }
+        }
+
+        // Dropped concepts are cleared from the greaters of the next ones, their own greaters are not computed
+        long[] kept = Bitsets.full(conceptsNb);
+        boolean timedOut = false;
+        List<long[]> allGreaters = Lists.newArrayListWithCapacity(conceptsNb);
+        List<int[]> covers = Lists.newArrayListWithCapacity(conceptsNb);
+        for (int start = 0; start < conceptsNb; start += BLOCK_SIZE) {
+            if (!timedOut && this.timeOut.getAsBoolean()) {
+                timedOut = true;
+                for (int i = start; i < conceptsNb; i++) {
+                    if (orderedConcepts.get(i).getIdentifier() >= this.context.entitiesNb()) {
+                        Bitsets.clear(kept, i);
+                    }
+                }
+            }
+            int blockStart = start;
+            allGreaters.addAll(ParallelTasks.map(this.pool, Math.min(BLOCK_SIZE, conceptsNb - start), k -> {
+                int i = blockStart + k;
+                if (!Bitsets.get(kept, i)) {
+                    return null;
+                }
+                long[] greaters = allGreaters(i, orderedConcepts.get(i).getExtentsBits(), conceptsByEntity);
+                Bitsets.and(greaters, kept);
+                return greaters;
+            }));
+            covers.addAll(ParallelTasks.map(this.pool, Math.min(BLOCK_SIZE, conceptsNb - start), k ->
+                    Bitsets.get(kept, blockStart + k) ? covers(blockStart + k, allGreaters) : new int[0]
+            ));
+        }
+        for (int i = 0; i < conceptsNb; i++) {
+            for (int j : covers.get(i)) {
+                orderedConcepts.get(i).addParent(orderedConcepts.get(j));
+            }
+        }
+        if (timedOut) {
+            for (int i = 0; i < conceptsNb; i++) {
+                if (!Bitsets.get(kept, i)) {
+                    this.concepts.remove(orderedConcepts.get(i));
+                }
+            }
+            orderedConcepts.removeIf(concept -> !this.concepts.contains(concept));
+        }
+
+        // Own extents and intents are computed once the concepts are linked
+        ParallelTasks.forEach(this.pool, orderedConcepts.size(), i -> orderedConcepts.get(i).computeLabels());
+    }
+
+    // Attribute concepts built block by block until the time out, the other ones being only counted
+    private void addAttributeConcepts() {
+        int attributesNb = this.context.attributesNb();
+        int builtNb = 0;
+        while (builtNb < attributesNb && !this.timeOut.getAsBoolean()) {
+            int blockStart = builtNb;
+            this.concepts.addAll(ParallelTasks.map(this.pool, Math.min(BLOCK_SIZE, attributesNb - blockStart),
+                    k -> v(blockStart + k)));
+            builtNb = Math.min(attributesNb, blockStart + BLOCK_SIZE);
+        }
+        this.candidatesNb = this.concepts.size();
+        if (builtNb < attributesNb) {
+            // The extents of an attribute concept are the column of its attribute in the context
+            Set<LongBuffer> extents = Sets.newHashSet();
+            this.concepts.forEach(concept -> extents.add(LongBuffer.wrap(((BitSetConcept) concept).getExtentsBits())));
+            for (int attribute = builtNb; attribute < attributesNb; attribute++) {
+                if (extents.add(LongBuffer.wrap(this.context.getEntities(attribute)))) {
+                    this.candidatesNb++;
+                }
+            }
+        }
+    }
+
+    /*
+     * Bounded queue of the attribute concepts, whose head is the one of the worst score. Attributes with the
+     * same entities give the same concept, which is counted once even when it has already left the queue:
+     * their columns of the context are kept as keys, without copying them.
+     */
+    private void addBestAttributeConcepts() {
+        Map<Concept, Long> scores = Maps.newHashMap();
+        Set<LongBuffer> candidateExtents = Sets.newHashSet();
+        PriorityQueue<Concept> queue = new PriorityQueue<>(Comparator.comparingLong((Concept concept) -> scores.get(concept))
+                .thenComparing(Comparator.comparingInt(Concept::getIdentifier).reversed()));
+        int candidatesNb = this.concepts.size();
+        for (int start = 0; start < this.context.attributesNb(); start += BLOCK_SIZE) {
+            int blockStart = start;
+            List<BitSetConcept> candidates = ParallelTasks.map(this.pool,
+                    Math.min(BLOCK_SIZE, this.context.attributesNb() - start), k -> v(blockStart + k));
+            List<Long> candidateScores = ParallelTasks.map(this.pool, candidates.size(), k ->
+                    this.score.applyAsLong(candidates.get(k))
+            );
+            for (int k = 0; k < candidates.size(); k++) {
+                BitSetConcept candidate = candidates.get(k);
+                if (!candidateExtents.add(LongBuffer.wrap(this.context.getEntities(blockStart + k)))
+                        || this.concepts.contains(candidate)) {
+                    continue;
+                }
+                candidatesNb++;
+                scores.put(candidate, candidateScores.get(k));
+                queue.add(candidate);
+                if (queue.size() > this.candidatesMaxNb) {
+                    scores.remove(queue.poll());
+                }
+            }
+        }
+        this.candidatesNb = candidatesNb;
+        this.concepts.addAll(queue);
+    }
+
+    private BitSetConcept u(int entity) {
+        long[] intents = this.context.getAttributes(entity).clone();
+        long[] extents = Bitsets.full(this.context.entitiesNb());
+        for (int attribute = Bitsets.nextSetBit(intents, 0); attribute >= 0; attribute = Bitsets.nextSetBit(intents, attribute + 1)) {
+            Bitsets.and(extents, this.context.getEntities(attribute));
+        }
+        return new BitSetConcept(entity, this.context, extents, intents);
+    }
+
+    private BitSetConcept v(int attribute) {
+        long[] extents = this.context.getEntities(attribute).clone();
+        long[] intents = Bitsets.full(this.context.attributesNb());
+        for (int entity = Bitsets.nextSetBit(extents, 0); entity >= 0; entity = Bitsets.nextSetBit(extents, entity + 1)) {
+            Bitsets.and(intents, this.context.getAttributes(entity));
+        }
+        return new BitSetConcept(this.context.entitiesNb() + attribute, this.context, extents, intents);
+    }
+
+    // Concepts placed before the i-th one whose extents contain the given extents
+    private static long[] allGreaters(int i, long[] extents, long[][] conceptsByEntity) {
+        long[] allGreaters = Bitsets.full(i);
+        for (int entity = Bitsets.nextSetBit(extents, 0); entity >= 0; entity = Bitsets.nextSetBit(extents, entity + 1)) {
+            Bitsets.and(allGreaters, conceptsByEntity[entity]);
+        }
+        return allGreaters;
+    }
+
+    // Closest concepts greater than the i-th one, by decreasing index
+    private static int[] covers(int i, List<long[]> allGreaters) {
+        long[] greaters = allGreaters.get(i);
+        long[] covered = Bitsets.empty(i);
+        int[] covers = new int[Bitsets.cardinality(greaters)];
+        int coversNb = 0;
+        for (int j = Bitsets.previousSetBit(greaters, i - 1); j >= 0; j = Bitsets.previousSetBit(greaters, j - 1)) {
+            if (!Bitsets.get(covered, j)) {
+                covers[coversNb++] = j;
+                Bitsets.or(covered, allGreaters.get(j));
+            }
+        }
+        return Arrays.copyOf(covers, coversNb);
+    }
+
+    // Number of distinct object and attribute concepts, whether they are kept or not
+    public int candidatesNb() {
+        return this.candidatesNb;
+    }
+
+    public boolean isComplete() {
+        return this.concepts.size() == this.candidatesNb;
+    }
+
+    @Override
+    public Set<Concept> getConcepts() {
+        return this.concepts;
+    }
+
+}
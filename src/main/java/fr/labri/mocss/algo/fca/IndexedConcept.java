@@ -0,0 +1,55 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import java.util.Collections;
+import java.util.Set;
+
+// Concept of an indexed context, whose extents and intents are materialized as sets once, when first read
+abstract class IndexedConcept extends Concept {
+
+    private Set<FcaElement> extents;
+    private Set<FcaElement> intents;
+
+    IndexedConcept(int identifier) {
+        super(identifier);
+    }
+
+    @Override
+    public final Set<FcaElement> getExtents() {
+        if (this.extents == null) {
+            this.extents = Collections.unmodifiableSet(computeExtents());
+        }
+        return this.extents;
+    }
+
+    @Override
+    public final Set<FcaElement> getIntents() {
+        if (this.intents == null) {
+            this.intents = Collections.unmodifiableSet(computeIntents());
+        }
+        return this.intents;
+    }
+
+    protected abstract Set<FcaElement> computeExtents();
+
+    protected abstract Set<FcaElement> computeIntents();
+
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Sets;
+
+import java.util.Set;
+
+// Entities or attributes of the indexed contexts given by bitsets or sorted ids, and their set hash codes
+final class IndexedElements {
+
+    static Set<FcaElement> toElements(long[] bits, FcaElement[] elements) {
+        Set<FcaElement> result = Sets.newHashSetWithExpectedSize(Bitsets.cardinality(bits));
+        for (int i = Bitsets.nextSetBit(bits, 0); i >= 0; i = Bitsets.nextSetBit(bits, i + 1)) {
+            result.add(elements[i]);
+        }
+        return result;
+    }
+
+    static Set<FcaElement> toElements(int[] ids, FcaElement[] elements) {
+        Set<FcaElement> result = Sets.newHashSetWithExpectedSize(ids.length);
+        for (int id : ids) {
+            result.add(elements[id]);
+        }
+        return result;
+    }
+
+    // Same value as the hashCode of the Set of the elements
+    static int hashCode(long[] bits, int[] hashes) {
+        int hashCode = 0;
+        for (int i = Bitsets.nextSetBit(bits, 0); i >= 0; i = Bitsets.nextSetBit(bits, i + 1)) {
+            hashCode += hashes[i];
+        }
+        return hashCode;
+    }
+
+    static int hashCode(int[] ids, int[] hashes) {
+        int hashCode = 0;
+        for (int id : ids) {
+            hashCode += hashes[id];
+        }
+        return hashCode;
+    }
+
+    private IndexedElements() {}
+
+}
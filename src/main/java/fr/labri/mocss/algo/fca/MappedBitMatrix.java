@@ -0,0 +1,182 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo.fca;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Matrix of bits stored row by row in a memory-mapped temporary file, so that it lives in the page cache
+ * instead of the heap. Rows are laid out as the long words of Bitsets and are read into or combined with
+ * heap bitsets one at a time. The file is deleted as soon as it is mapped: the mapping keeps it alive
+ * until it is garbage collected.
+ * Rows may be written concurrently as long as each one is written by a single thread.
+ */
+public class MappedBitMatrix {
+
+    // Largest size of a single mapping, rows never span two of them
+    private static final long CHUNK_BYTES = 1L << 30;
+
+    private final int rowsNb;
+    private final int columnsNb;
+    private final int rowWords;
+    private final int chunkRows;
+    private final LongBuffer[] chunks;
+
+    public MappedBitMatrix(File directory, int rowsNb, int columnsNb) {
+        this.rowsNb = rowsNb;
+        this.columnsNb = columnsNb;
+        this.rowWords = Bitsets.words(columnsNb);
+        this.chunkRows = (int) Math.min(Integer.MAX_VALUE, Math.max(1, CHUNK_BYTES / Math.max(1, this.rowWords * 8L)));
+        this.chunks = new LongBuffer[(rowsNb + this.chunkRows - 1) / this.chunkRows];
+
+        try {
+            File file = File.createTempFile("mocss", ".bits", directory);
+            try (FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (int chunk = 0; chunk < this.chunks.length; chunk++) {
+                    int chunkRowsNb = Math.min(this.chunkRows, rowsNb - chunk * this.chunkRows);
+                    long offset = (long) chunk * this.chunkRows * this.rowWords * 8L;
+                    this.chunks[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, offset,
+                            (long) chunkRowsNb * this.rowWords * 8L).order(ByteOrder.nativeOrder()).asLongBuffer();
+                }
+            } finally {
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot map a bit matrix in " + directory, e);
+        }
+    }
+
+    public int rowsNb() {
+        return this.rowsNb;
+    }
+
+    public int columnsNb() {
+        return this.columnsNb;
+    }
+
+    public void set(int row, int column) {
+        LongBuffer chunk = chunk(row);
+        int index = offset(row) + (column >>> 6);
+        chunk.put(index, chunk.get(index) | 1L << column);
+    }
+
+    public boolean get(int row, int column) {
+        return (chunk(row).get(offset(row) + (column >>> 6)) & 1L << column) != 0;
+    }
+
+    public long[] getRow(int row) {
+        long[] bits = new long[this.rowWords];
+        LongBuffer chunk = chunk(row);
+        int offset = offset(row);
+        for (int i = 0; i < this.rowWords; i++) {
+            bits[i] = chunk.get(offset + i);
+        }
+        return bits;
+    }
+
+    // Rows are empty until set, the words beyond the given bitset are left as they are
+    public void setRow(int row, long[] bits) {
+        LongBuffer chunk = chunk(row);
+        int offset = offset(row);
+        for (int i = 0; i < bits.length; i++) {
+            chunk.put(offset + i, bits[i]);
+        }
+    }
+
+    // Intersects the given bitset with a row, both having the width of the matrix or less
+    public void andRow(int row, long[] bits) {
+        LongBuffer chunk = chunk(row);
+        int offset = offset(row);
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= chunk.get(offset + i);
+        }
+    }
+
+    public void orRow(int row, long[] bits) {
+        LongBuffer chunk = chunk(row);
+        int offset = offset(row);
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= chunk.get(offset + i);
+        }
+    }
+
+    public void andNotRow(int row, long[] bits) {
+        LongBuffer chunk = chunk(row);
+        int offset = offset(row);
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= ~chunk.get(offset + i);
+        }
+    }
+
+    public boolean rowContainsAll(int row, int otherRow) {
+        LongBuffer chunk = chunk(row);
+        LongBuffer otherChunk = chunk(otherRow);
+        int offset = offset(row);
+        int otherOffset = offset(otherRow);
+        for (int i = 0; i < this.rowWords; i++) {
+            if ((otherChunk.get(otherOffset + i) & ~chunk.get(offset + i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean rowEquals(int row, int otherRow) {
+        LongBuffer chunk = chunk(row);
+        LongBuffer otherChunk = chunk(otherRow);
+        int offset = offset(row);
+        int otherOffset = offset(otherRow);
+        for (int i = 0; i < this.rowWords; i++) {
+            if (otherChunk.get(otherOffset + i) != chunk.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int rowCardinality(int row) {
+        LongBuffer chunk = chunk(row);
+        int offset = offset(row);
+        int cardinality = 0;
+        for (int i = 0; i < this.rowWords; i++) {
+            cardinality += Long.bitCount(chunk.get(offset + i));
+        }
+        return cardinality;
+    }
+
+    private LongBuffer chunk(int row) {
+        return this.chunks[row / this.chunkRows];
+    }
+
+    private int offset(int row) {
+        return (row % this.chunkRows) * this.rowWords;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo.fca;
+
+import java.util.Set;
+
+// Concept whose extents and intents are the rows of its identifier in memory-mapped matrices
+public class MappedConcept extends IndexedConcept {
+
+    private final MappedContext context;
+    private final MappedBitMatrix extents;
+    private final MappedBitMatrix intents;
+    private final int hashCode;
+
+    public MappedConcept(int identifier, MappedContext context, MappedBitMatrix extents, MappedBitMatrix intents) {
+        super(identifier);
+        this.context = context;
+        this.extents = extents;
+        this.intents = intents;
+        // Same value as a SetConcept holding the same elements
+        this.hashCode = context.attributesHashCode(intents.getRow(identifier))
+                + context.entitiesHashCode(extents.getRow(identifier));
+    }
+
+    public int extentsNb() {
+        return this.extents.rowCardinality(getIdentifier());
+    }
+
+    @Override
+    protected Set<FcaElement> computeExtents() {
+        return this.context.toEntities(this.extents.getRow(getIdentifier()));
+    }
+
+    @Override
+    protected Set<FcaElement> computeIntents() {
+        return this.context.toAttributes(this.intents.getRow(getIdentifier()));
+    }
+
+    @Override
+    protected Set<FcaElement> computeSimplifiedExtents() {
+        long[] simplifiedExtents = this.extents.getRow(getIdentifier());
+        getChildren().forEach(child -> this.extents.andNotRow(child.getIdentifier(), simplifiedExtents));
+        return this.context.toEntities(simplifiedExtents);
+    }
+
+    @Override
+    protected Set<FcaElement> computeSimplifiedIntents() {
+        long[] simplifiedIntents = this.intents.getRow(getIdentifier());
+        getParents().forEach(parent -> this.intents.andNotRow(parent.getIdentifier(), simplifiedIntents));
+        return this.context.toAttributes(simplifiedIntents);
+    }
+
+    @Override
+    public boolean isGreaterThan(Concept concept) {
+        return this.extents.rowContainsAll(getIdentifier(), concept.getIdentifier());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        } else if (obj == this) {
+            return true;
+        } else if (!(obj instanceof MappedConcept)) {
+            return false;
+        } else {
+            final MappedConcept other = (MappedConcept) obj;
+            return other.hashCode == this.hashCode && other.extents == this.extents
+                    && this.intents.rowEquals(getIdentifier(), other.getIdentifier())
+                    && this.extents.rowEquals(getIdentifier(), other.getIdentifier());
+        }
+    }
+
+}
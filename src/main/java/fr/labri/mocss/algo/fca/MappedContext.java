@@ -0,0 +1,111 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Maps;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Same relations as a BitSetContext, stored in memory-mapped files of the given directory.
+ * Only the elements and their hash codes are kept in the heap.
+ */
+public class MappedContext {
+
+    private final File directory;
+    private final FcaElement[] entities;
+    private final FcaElement[] attributes;
+    private final int[] entityHashes;
+    private final int[] attributeHashes;
+    private final MappedBitMatrix relations;
+    private final MappedBitMatrix reverseRelations;
+
+    public MappedContext(Context context, File directory) {
+        this.directory = directory;
+        this.entities = context.getEntities().toArray(new FcaElement[0]);
+        this.attributes = context.getAttributes().toArray(new FcaElement[0]);
+        this.entityHashes = new int[this.entities.length];
+        this.attributeHashes = new int[this.attributes.length];
+        this.relations = new MappedBitMatrix(directory, this.entities.length, this.attributes.length);
+        this.reverseRelations = new MappedBitMatrix(directory, this.attributes.length, this.entities.length);
+
+        Map<FcaElement, Integer> attributeIds = Maps.newHashMap();
+        for (int attribute = 0; attribute < this.attributes.length; attribute++) {
+            attributeIds.put(this.attributes[attribute], attribute);
+            this.attributeHashes[attribute] = this.attributes[attribute].hashCode();
+        }
+        for (int entity = 0; entity < this.entities.length; entity++) {
+            this.entityHashes[entity] = this.entities[entity].hashCode();
+            for (FcaElement element : context.getAttributes(this.entities[entity])) {
+                int attribute = attributeIds.get(element);
+                this.relations.set(entity, attribute);
+                this.reverseRelations.set(attribute, entity);
+            }
+        }
+    }
+
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    public int entitiesNb() {
+        return this.entities.length;
+    }
+
+    public int attributesNb() {
+        return this.attributes.length;
+    }
+
+    public FcaElement getEntity(int entity) {
+        return this.entities[entity];
+    }
+
+    public FcaElement getAttribute(int attribute) {
+        return this.attributes[attribute];
+    }
+
+    public MappedBitMatrix getRelations() {
+        return this.relations;
+    }
+
+    public MappedBitMatrix getReverseRelations() {
+        return this.reverseRelations;
+    }
+
+    public Set<FcaElement> toEntities(long[] bits) {
+        return IndexedElements.toElements(bits, this.entities);
+    }
+
+    public Set<FcaElement> toAttributes(long[] bits) {
+        return IndexedElements.toElements(bits, this.attributes);
+    }
+
+    int entitiesHashCode(long[] bits) {
+        return IndexedElements.hashCode(bits, this.entityHashes);
+    }
+
+    int attributesHashCode(long[] bits) {
+        return IndexedElements.hashCode(bits, this.attributeHashes);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Out-of-core version of HermesGsh: the relations, the extents and intents of the concepts
+ * and the concepts of each entity are memory-mapped matrices, whose size grows with the one of the context.
+ * Each step streams over the rows of a matrix and only keeps a few rows at once in the heap,
+ * the page cache holding the rest. The concepts greater than a concept are only computed while looking
+ * for its covers, so that the order, which grows with the square of the number of concepts, is never stored.
+ */
+public class MappedGsh implements GshAlgorithm {
+
+    private MappedContext context;
+    private ForkJoinPool pool;
+    private MappedBitMatrix extents;
+    private MappedBitMatrix intents;
+    private Set<Concept> concepts;
+
+    public MappedGsh(MappedContext context) {
+        this(context, null);
+    }
+
+    public MappedGsh(MappedContext context, ForkJoinPool pool) {
+        this.context = context;
+        this.pool = pool;
+    }
+
+    @Override
+    public void compute() {
+        int entitiesNb = this.context.entitiesNb();
+        int attributesNb = this.context.attributesNb();
+        this.extents = new MappedBitMatrix(this.context.getDirectory(), entitiesNb + attributesNb, entitiesNb);
+        this.intents = new MappedBitMatrix(this.context.getDirectory(), entitiesNb + attributesNb, attributesNb);
+        this.concepts = Sets.newHashSet();
+
+        this.concepts.addAll(ParallelTasks.map(this.pool, entitiesNb, this::u));
+        this.concepts.addAll(ParallelTasks.map(this.pool, attributesNb, this::v));
+
+        List<MappedConcept> orderedConcepts = Lists.newArrayListWithCapacity(this.concepts.size());
+        this.concepts.forEach(concept -> orderedConcepts.add((MappedConcept) concept));
+        int[] extentsNb = new int[entitiesNb + attributesNb];
+        orderedConcepts.forEach(concept -> extentsNb[concept.getIdentifier()] = concept.extentsNb());
+        orderedConcepts.sort(Comparator.comparingInt(
+                (MappedConcept concept) -> extentsNb[concept.getIdentifier()]).reversed());
+
+        int conceptsNb = orderedConcepts.size();
+        MappedBitMatrix conceptsByEntity = new MappedBitMatrix(this.context.getDirectory(), entitiesNb, conceptsNb);
+        for (int i = 0; i < conceptsNb; i++) {
+            long[] conceptExtents = this.extents.getRow(orderedConcepts.get(i).getIdentifier());
+            for (int entity = Bitsets.nextSetBit(conceptExtents, 0); entity >= 0; entity = Bitsets.nextSetBit(conceptExtents, entity + 1)) {
+                conceptsByEntity.set(entity, i);
+            }
+        }
+
+        int[] rows = new int[conceptsNb];
+        for (int i = 0; i < conceptsNb; i++) {
+            rows[i] = orderedConcepts.get(i).getIdentifier();
+        }
+        List<int[]> covers = ParallelTasks.map(this.pool, conceptsNb, i -> covers(i, rows, conceptsByEntity));
+        for (int i = 0; i < conceptsNb; i++) {
+            for (int j : covers.get(i)) {
+                orderedConcepts.get(i).addParent(orderedConcepts.get(j));
+            }
+        }
+
+        // Own extents and intents are computed once the concepts are linked
+        ParallelTasks.forEach(this.pool, orderedConcepts.size(), i -> orderedConcepts.get(i).computeLabels());
+    }
+
+    private MappedConcept u(int entity) {
+        long[] conceptIntents = this.context.getRelations().getRow(entity);
+        long[] conceptExtents = Bitsets.full(this.context.entitiesNb());
+        for (int attribute = Bitsets.nextSetBit(conceptIntents, 0); attribute >= 0; attribute = Bitsets.nextSetBit(conceptIntents, attribute + 1)) {
+            this.context.getReverseRelations().andRow(attribute, conceptExtents);
+        }
+        return concept(entity, conceptExtents, conceptIntents);
+    }
+
+    private MappedConcept v(int attribute) {
+        long[] conceptExtents = this.context.getReverseRelations().getRow(attribute);
+        long[] conceptIntents = Bitsets.full(this.context.attributesNb());
+        for (int entity = Bitsets.nextSetBit(conceptExtents, 0); entity >= 0; entity = Bitsets.nextSetBit(conceptExtents, entity + 1)) {
+            this.context.getRelations().andRow(entity, conceptIntents);
+        }
+        return concept(this.context.entitiesNb() + attribute, conceptExtents, conceptIntents);
+    }
+
+    private MappedConcept concept(int identifier, long[] conceptExtents, long[] conceptIntents) {
+        this.extents.setRow(identifier, conceptExtents);
+        this.intents.setRow(identifier, conceptIntents);
+        return new MappedConcept(identifier, this.context, this.extents, this.intents);
+    }
+
+    // Concepts placed before the i-th one whose extents contain the extents of the given row
+    private long[] allGreaters(int i, int row, MappedBitMatrix conceptsByEntity) {
+        long[] conceptExtents = this.extents.getRow(row);
+        long[] allGreaters = Bitsets.full(i);
+        for (int entity = Bitsets.nextSetBit(conceptExtents, 0); entity >= 0; entity = Bitsets.nextSetBit(conceptExtents, entity + 1)) {
+            conceptsByEntity.andRow(entity, allGreaters);
+        }
+        return allGreaters;
+    }
+
+    /*
+     * Closest concepts greater than the i-th one, by decreasing index: the greater concepts come by increasing
+     * extent size, so a concept is a cover unless its extents contain the ones of a cover already found
+     */
+    private int[] covers(int i, int[] rows, MappedBitMatrix conceptsByEntity) {
+        long[] greaters = allGreaters(i, rows[i], conceptsByEntity);
+        int[] covers = new int[Bitsets.cardinality(greaters)];
+        int coversNb = 0;
+        for (int j = Bitsets.previousSetBit(greaters, i - 1); j >= 0; j = Bitsets.previousSetBit(greaters, j - 1)) {
+            boolean covered = false;
+            for (int k = 0; k < coversNb && !covered; k++) {
+                covered = this.extents.rowContainsAll(rows[j], rows[covers[k]]);
+            }
+            if (!covered) {
+                covers[coversNb++] = j;
+            }
+        }
+        return Arrays.copyOf(covers, coversNb);
+    }
+
+    @Override
+    public Set<Concept> getConcepts() {
+        return this.concepts;
+    }
+
+}
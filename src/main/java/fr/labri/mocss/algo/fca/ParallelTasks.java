@@ -0,0 +1,97 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ * Copyright 2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/*
+ * Runs independent tasks indexed from 0 to size - 1 on a fork-join pool, or on the
+ * calling thread when there is no pool. Results are returned in the order of the indexes,
+ * so that callers consuming them stay deterministic.
+ */
+public final class ParallelTasks {
+
+    private static final int SEQUENTIAL_THRESHOLD = 16;
+
+    public static <T> List<T> map(ForkJoinPool pool, int size, IntFunction<T> task) {
+        Object[] results = new Object[size];
+        if (pool == null) {
+            for (int i = 0; i < size; i++) {
+                results[i] = task.apply(i);
+            }
+        } else if (ForkJoinTask.getPool() == pool) {
+            // Nested in a task of the same pool
+            new MapAction<>(task, results, 0, size).invoke();
+        } else {
+            pool.invoke(new MapAction<>(task, results, 0, size));
+        }
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    public static void forEach(ForkJoinPool pool, int size, IntConsumer task) {
+        map(pool, size, i -> {
+            task.accept(i);
+            return null;
+        });
+    }
+
+    private static class MapAction<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntFunction<T> task;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+
+        MapAction(IntFunction<T> task, Object[] results, int from, int to) {
+            this.task = task;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.results[i] = this.task.apply(i);
+                }
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new MapAction<>(this.task, this.results, this.from, middle),
+                        new MapAction<>(this.task, this.results, middle, this.to));
+            }
+        }
+
+    }
+
+    private ParallelTasks() {}
+
+}
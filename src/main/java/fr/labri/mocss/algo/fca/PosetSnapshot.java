@@ -0,0 +1,219 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Binary snapshot of the posets computed for some contexts, so that they are not computed again by later runs.
+ * Each poset is stored under a hash of its context, elements being taken in the order of the context.
+ * Its entities and attributes are stored as indexes in the elements of the context, delta-encoded as
+ * variable-length integers, and its cover edges as indexes of concepts. Posets are given back as
+ * BitSetConcepts, as built by the default algorithm. The snapshot itself is keyed by the caller,
+ * so that a stale one can be detected.
+ */
+public class PosetSnapshot {
+
+    private static final int MAGIC = 0x4d4f4353;
+    private static final int VERSION = 1;
+
+    private final HashCode key;
+    private final Map<HashCode, StoredPoset> posets;
+
+    public PosetSnapshot(HashCode key) {
+        this.key = key;
+        this.posets = Maps.newLinkedHashMap();
+    }
+
+    public HashCode getKey() {
+        return this.key;
+    }
+
+    public synchronized int posetsNb() {
+        return this.posets.size();
+    }
+
+    // Concepts are stored in the iteration order of the given set, and given back in the same order
+    public synchronized void put(Context context, Set<Concept> concepts) {
+        Map<FcaElement, Integer> entityIndexes = indexes(Lists.newArrayList(context.getEntities()));
+        Map<FcaElement, Integer> attributeIndexes = indexes(Lists.newArrayList(context.getAttributes()));
+        List<Concept> orderedConcepts = Lists.newArrayList(concepts);
+        Map<Concept, Integer> conceptIndexes = indexes(orderedConcepts);
+
+        StoredPoset poset = new StoredPoset(orderedConcepts.size());
+        for (int i = 0; i < orderedConcepts.size(); i++) {
+            Concept concept = orderedConcepts.get(i);
+            poset.identifiers[i] = concept.getIdentifier();
+            poset.extents[i] = toIndexes(concept.getExtents(), entityIndexes);
+            poset.intents[i] = toIndexes(concept.getIntents(), attributeIndexes);
+            poset.parents[i] = concept.getParents().stream().mapToInt(conceptIndexes::get).toArray();
+        }
+        this.posets.put(contextKey(context), poset);
+    }
+
+    // Concepts of the given context, null if its poset is not in the snapshot
+    public Set<Concept> get(Context context) {
+        StoredPoset poset;
+        synchronized (this) {
+            poset = this.posets.get(contextKey(context));
+        }
+        if (poset == null) {
+            return null;
+        }
+
+        BitSetContext bitSetContext = new BitSetContext(context);
+        List<Concept> concepts = Lists.newArrayListWithCapacity(poset.identifiers.length);
+        for (int i = 0; i < poset.identifiers.length; i++) {
+            concepts.add(new BitSetConcept(poset.identifiers[i], bitSetContext,
+                    toBits(poset.extents[i], bitSetContext.entitiesNb()),
+                    toBits(poset.intents[i], bitSetContext.attributesNb())));
+        }
+        for (int i = 0; i < poset.identifiers.length; i++) {
+            for (int parent : poset.parents[i]) {
+                concepts.get(i).addParent(concepts.get(parent));
+            }
+        }
+        concepts.forEach(Concept::computeLabels);
+        // Added one by one, as by the algorithms, so that the set is iterated in the same order
+        Set<Concept> result = Sets.newHashSet();
+        result.addAll(concepts);
+        return result;
+    }
+
+    public synchronized void write(File file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            VarInts.writeBytes(output, this.key.asBytes());
+            VarInts.write(output, this.posets.size());
+            for (Map.Entry<HashCode, StoredPoset> entry : this.posets.entrySet()) {
+                VarInts.writeBytes(output, entry.getKey().asBytes());
+                StoredPoset poset = entry.getValue();
+                VarInts.write(output, poset.identifiers.length);
+                for (int i = 0; i < poset.identifiers.length; i++) {
+                    VarInts.write(output, poset.identifiers[i]);
+                    VarInts.writeSorted(output, poset.extents[i]);
+                    VarInts.writeSorted(output, poset.intents[i]);
+                    VarInts.write(output, poset.parents[i].length);
+                    for (int parent : poset.parents[i]) {
+                        VarInts.write(output, parent);
+                    }
+                }
+            }
+        }
+    }
+
+    public static PosetSnapshot read(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("not a poset snapshot: " + file);
+            }
+            PosetSnapshot snapshot = new PosetSnapshot(HashCode.fromBytes(VarInts.readBytes(input)));
+            int posetsNb = VarInts.read(input);
+            for (int p = 0; p < posetsNb; p++) {
+                HashCode contextKey = HashCode.fromBytes(VarInts.readBytes(input));
+                StoredPoset poset = new StoredPoset(VarInts.read(input));
+                for (int i = 0; i < poset.identifiers.length; i++) {
+                    poset.identifiers[i] = VarInts.read(input);
+                    poset.extents[i] = VarInts.readSorted(input);
+                    poset.intents[i] = VarInts.readSorted(input);
+                    poset.parents[i] = new int[VarInts.read(input)];
+                    for (int j = 0; j < poset.parents[i].length; j++) {
+                        poset.parents[i][j] = VarInts.read(input);
+                    }
+                }
+                snapshot.posets.put(contextKey, poset);
+            }
+            return snapshot;
+        }
+    }
+
+    // Hash of the entities of a context and of their attributes, in the order of the context
+    private static HashCode contextKey(Context context) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        context.getAttributes().forEach(attribute ->
+                hasher.putString(attribute.getIdentifier(), StandardCharsets.UTF_8).putByte((byte) 0)
+        );
+        context.getEntities().forEach(entity -> {
+            hasher.putByte((byte) 1).putString(entity.getIdentifier(), StandardCharsets.UTF_8);
+            context.getAttributes(entity).forEach(attribute ->
+                    hasher.putByte((byte) 0).putString(attribute.getIdentifier(), StandardCharsets.UTF_8)
+            );
+        });
+        return hasher.hash();
+    }
+
+    private static <T> Map<T, Integer> indexes(List<T> elements) {
+        Map<T, Integer> indexes = Maps.newHashMapWithExpectedSize(elements.size());
+        elements.forEach(element -> indexes.put(element, indexes.size()));
+        return indexes;
+    }
+
+    private static int[] toIndexes(Set<FcaElement> elements, Map<FcaElement, Integer> indexes) {
+        int[] result = elements.stream().mapToInt(indexes::get).toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static long[] toBits(int[] indexes, int size) {
+        long[] bits = Bitsets.empty(size);
+        for (int index : indexes) {
+            Bitsets.set(bits, index);
+        }
+        return bits;
+    }
+
+    private static class StoredPoset {
+
+        private final int[] identifiers;
+        private final int[][] extents;
+        private final int[][] intents;
+        private final int[][] parents;
+
+        private StoredPoset(int conceptsNb) {
+            this.identifiers = new int[conceptsNb];
+            this.extents = new int[conceptsNb][];
+            this.intents = new int[conceptsNb][];
+            this.parents = new int[conceptsNb][];
+        }
+
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Sorted lists of int identifiers stored back to back (compressed sparse rows)
+public class PostingLists {
+
+    private final int[] offsets;
+    private final int[] values;
+
+    public PostingLists(int[] offsets, int[] values) {
+        this.offsets = offsets;
+        this.values = values;
+    }
+
+    public static PostingLists of(List<int[]> lists) {
+        int[] offsets = new int[lists.size() + 1];
+        for (int list = 0; list < lists.size(); list++) {
+            offsets[list + 1] = offsets[list] + lists.get(list).length;
+        }
+        int[] values = new int[offsets[lists.size()]];
+        for (int list = 0; list < lists.size(); list++) {
+            System.arraycopy(lists.get(list), 0, values, offsets[list], lists.get(list).length);
+        }
+        return new PostingLists(offsets, values);
+    }
+
+    public int size() {
+        return this.offsets.length - 1;
+    }
+
+    public int valuesNb() {
+        return this.values.length;
+    }
+
+    public int length(int list) {
+        return this.offsets[list + 1] - this.offsets[list];
+    }
+
+    public int[] get(int list) {
+        return Arrays.copyOfRange(this.values, this.offsets[list], this.offsets[list + 1]);
+    }
+
+    public boolean contains(int list, int value) {
+        return Arrays.binarySearch(this.values, this.offsets[list], this.offsets[list + 1], value) >= 0;
+    }
+
+    // Values shared by all the given lists, probing the others from the shortest one
+    public int[] intersect(int[] lists) {
+        assert lists.length > 0;
+        int shortest = lists[0];
+        for (int list : lists) {
+            if (length(list) < length(shortest)) {
+                shortest = list;
+            }
+        }
+        int[] result = get(shortest);
+        int resultNb = result.length;
+        for (int list : lists) {
+            if (list == shortest) {
+                continue;
+            }
+            int kept = 0;
+            for (int i = 0; i < resultNb; i++) {
+                if (contains(list, result[i])) {
+                    result[kept++] = result[i];
+                }
+            }
+            resultNb = kept;
+            if (resultNb == 0) {
+                break;
+            }
+        }
+        return resultNb == result.length ? result : Arrays.copyOf(result, resultNb);
+    }
+
+    // Inverts the lists: list v of the result holds the lists of this instance containing v
+    public PostingLists transpose(int valuesRange) {
+        int[] transposedOffsets = new int[valuesRange + 1];
+        for (int value : this.values) {
+            transposedOffsets[value + 1]++;
+        }
+        for (int value = 0; value < valuesRange; value++) {
+            transposedOffsets[value + 1] += transposedOffsets[value];
+        }
+        int[] positions = Arrays.copyOf(transposedOffsets, valuesRange);
+        int[] transposedValues = new int[this.values.length];
+        for (int list = 0; list < size(); list++) {
+            for (int i = this.offsets[list]; i < this.offsets[list + 1]; i++) {
+                transposedValues[positions[this.values[i]]++] = list;
+            }
+        }
+        return new PostingLists(transposedOffsets, transposedValues);
+    }
+
+    public static boolean containsAll(int[] list, int[] other) {
+        if (other.length > list.length) {
+            return false;
+        }
+        int i = 0;
+        for (int value : other) {
+            while (i < list.length && list[i] < value) {
+                i++;
+            }
+            if (i == list.length || list[i] != value) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ * Copyright 2015 Jean-Rémy Falleri <jr.falleri@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+public class SetConcept extends Concept {
+
+    private final Set<FcaElement> extents;
+    private final Set<FcaElement> intents;
+    private final int hashCode;
+
+    public SetConcept(int identifier, Set<FcaElement> extents, Set<FcaElement> intents) {
+        super(identifier);
+        this.extents = ImmutableSet.copyOf(extents);
+        this.intents = ImmutableSet.copyOf(intents);
+        this.hashCode = this.intents.hashCode() + this.extents.hashCode();
+    }
+
+    @Override
+    public Set<FcaElement> getExtents() {
+        return this.extents;
+    }
+
+    @Override
+    public Set<FcaElement> getIntents() {
+        return this.intents;
+    }
+
+    @Override
+    public boolean isGreaterThan(Concept concept) {
+        return this.extents.containsAll(concept.getExtents());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        } else if (obj == this) {
+            return true;
+        } else if (!(obj instanceof SetConcept)) {
+            return false;
+        } else {
+            final SetConcept other = (SetConcept) obj;
+            return other.hashCode == this.hashCode && other.intents.equals(this.intents) && other.extents.equals(this.extents);
+        }
+    }
+
+}
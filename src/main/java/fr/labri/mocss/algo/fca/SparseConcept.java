@@ -0,0 +1,113 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.Function;
+
+public class SparseConcept extends IndexedConcept {
+
+    private final SparseContext context;
+    private final int[] extents;
+    private final int[] intents;
+    private final int hashCode;
+
+    public SparseConcept(int identifier, SparseContext context, int[] extents, int[] intents) {
+        super(identifier);
+        this.context = context;
+        this.extents = extents;
+        this.intents = intents;
+        this.hashCode = context.attributesHashCode(intents) + context.entitiesHashCode(extents);
+    }
+
+    public int[] getExtentsIds() {
+        return this.extents;
+    }
+
+    public int[] getIntentsIds() {
+        return this.intents;
+    }
+
+    @Override
+    protected Set<FcaElement> computeExtents() {
+        return this.context.toEntities(this.extents);
+    }
+
+    @Override
+    protected Set<FcaElement> computeIntents() {
+        return this.context.toAttributes(this.intents);
+    }
+
+    @Override
+    protected Set<FcaElement> computeSimplifiedExtents() {
+        return this.context.toEntities(own(this.extents, getChildren(), child -> ((SparseConcept) child).extents));
+    }
+
+    @Override
+    protected Set<FcaElement> computeSimplifiedIntents() {
+        return this.context.toAttributes(own(this.intents, getParents(), parent -> ((SparseConcept) parent).intents));
+    }
+
+    // Elements of a sorted list that are in none of the sorted lists of the given neighbours
+    private static int[] own(int[] elements, Set<Concept> neighbours, Function<Concept, int[]> neighbourElements) {
+        int[] own = new int[elements.length];
+        int ownNb = 0;
+        for (int element : elements) {
+            boolean ownElement = true;
+            for (Concept neighbour : neighbours) {
+                if (Arrays.binarySearch(neighbourElements.apply(neighbour), element) >= 0) {
+                    ownElement = false;
+                    break;
+                }
+            }
+            if (ownElement) {
+                own[ownNb++] = element;
+            }
+        }
+        return Arrays.copyOf(own, ownNb);
+    }
+
+    @Override
+    public boolean isGreaterThan(Concept concept) {
+        return PostingLists.containsAll(this.extents, ((SparseConcept) concept).extents);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        } else if (obj == this) {
+            return true;
+        } else if (!(obj instanceof SparseConcept)) {
+            return false;
+        } else {
+            final SparseConcept other = (SparseConcept) obj;
+            return other.hashCode == this.hashCode
+                    && Arrays.equals(other.intents, this.intents) && Arrays.equals(other.extents, this.extents);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+// Copy of a Context where the relation is kept as sorted posting lists, one per entity and one per attribute
+public class SparseContext {
+
+    private final FcaElement[] entities;
+    private final FcaElement[] attributes;
+    private final int[] entityHashes;
+    private final int[] attributeHashes;
+    private final PostingLists relations;
+    private final PostingLists reverseRelations;
+
+    public SparseContext(Context context) {
+        this.entities = context.getEntities().toArray(new FcaElement[0]);
+        this.attributes = context.getAttributes().toArray(new FcaElement[0]);
+        this.entityHashes = new int[this.entities.length];
+        this.attributeHashes = new int[this.attributes.length];
+
+        Map<FcaElement, Integer> attributeIds = Maps.newHashMapWithExpectedSize(this.attributes.length);
+        for (int attribute = 0; attribute < this.attributes.length; attribute++) {
+            attributeIds.put(this.attributes[attribute], attribute);
+            this.attributeHashes[attribute] = this.attributes[attribute].hashCode();
+        }
+
+        int[] offsets = new int[this.entities.length + 1];
+        for (int entity = 0; entity < this.entities.length; entity++) {
+            this.entityHashes[entity] = this.entities[entity].hashCode();
+            offsets[entity + 1] = offsets[entity] + context.getAttributes(this.entities[entity]).size();
+        }
+        int[] values = new int[offsets[this.entities.length]];
+        for (int entity = 0; entity < this.entities.length; entity++) {
+            int i = offsets[entity];
+            for (FcaElement attribute : context.getAttributes(this.entities[entity])) {
+                values[i++] = attributeIds.get(attribute);
+            }
+            Arrays.sort(values, offsets[entity], offsets[entity + 1]);
+        }
+        this.relations = new PostingLists(offsets, values);
+        this.reverseRelations = this.relations.transpose(this.attributes.length);
+    }
+
+    public int entitiesNb() {
+        return this.entities.length;
+    }
+
+    public int attributesNb() {
+        return this.attributes.length;
+    }
+
+    public int relationsNb() {
+        return this.relations.valuesNb();
+    }
+
+    public FcaElement getEntity(int entity) {
+        return this.entities[entity];
+    }
+
+    public FcaElement getAttribute(int attribute) {
+        return this.attributes[attribute];
+    }
+
+    public int[] getAttributes(int entity) {
+        return this.relations.get(entity);
+    }
+
+    public int[] getEntities(int attribute) {
+        return this.reverseRelations.get(attribute);
+    }
+
+    public int[] getCommonEntities(int[] attributes) {
+        return attributes.length == 0 ? range(this.entities.length) : this.reverseRelations.intersect(attributes);
+    }
+
+    public int[] getCommonAttributes(int[] entities) {
+        return entities.length == 0 ? range(this.attributes.length) : this.relations.intersect(entities);
+    }
+
+    public Set<FcaElement> toEntities(int[] ids) {
+        return IndexedElements.toElements(ids, this.entities);
+    }
+
+    public Set<FcaElement> toAttributes(int[] ids) {
+        return IndexedElements.toElements(ids, this.attributes);
+    }
+
+    int entitiesHashCode(int[] ids) {
+        return IndexedElements.hashCode(ids, this.entityHashes);
+    }
+
+    int attributesHashCode(int[] ids) {
+        return IndexedElements.hashCode(ids, this.attributeHashes);
+    }
+
+    private static int[] range(int size) {
+        int[] range = new int[size];
+        for (int i = 0; i < size; i++) {
+            range[i] = i;
+        }
+        return range;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+public class SparseGsh implements GshAlgorithm {
+
+    private SparseContext context;
+    private ForkJoinPool pool;
+    private Set<Concept> concepts;
+
+    public SparseGsh(SparseContext context) {
+        this(context, null);
+    }
+
+    public SparseGsh(SparseContext context, ForkJoinPool pool) {
+        this.context = context;
+        this.pool = pool;
+    }
+
+    @Override
+    public void compute() {
+        this.concepts = Sets.newHashSet();
+
+        this.concepts.addAll(ParallelTasks.map(this.pool, this.context.entitiesNb(), this::u));
+        this.concepts.addAll(ParallelTasks.map(this.pool, this.context.attributesNb(), this::v));
+
+        List<SparseConcept> orderedConcepts = Lists.newArrayListWithCapacity(this.concepts.size());
+        this.concepts.forEach(concept -> orderedConcepts.add((SparseConcept) concept));
+
+        // For each entity, the concepts whose extents contain it
+        List<int[]> extents = Lists.newArrayListWithCapacity(orderedConcepts.size());
+        orderedConcepts.forEach(concept -> extents.add(concept.getExtentsIds()));
+        PostingLists conceptsByEntity = PostingLists.of(extents).transpose(this.context.entitiesNb());
+
+        List<List<SparseConcept>> parents = ParallelTasks.map(this.pool, orderedConcepts.size(), i ->
+                selectSmallest(allGreaters(i, orderedConcepts, conceptsByEntity))
+        );
+        for (int i = 0; i < orderedConcepts.size(); i++) {
+            parents.get(i).forEach(orderedConcepts.get(i)::addParent);
+        }
+
+        // Own extents and intents are computed once the concepts are linked
+        ParallelTasks.forEach(this.pool, orderedConcepts.size(), i -> orderedConcepts.get(i).computeLabels());
+    }
+
+    private SparseConcept u(int entity) {
+        int[] intents = this.context.getAttributes(entity);
+        int[] extents = this.context.getCommonEntities(intents);
+        return new SparseConcept(entity, this.context, extents, intents);
+    }
+
+    private SparseConcept v(int attribute) {
+        int[] extents = this.context.getEntities(attribute);
+        int[] intents = this.context.getCommonAttributes(extents);
+        return new SparseConcept(this.context.entitiesNb() + attribute, this.context, extents, intents);
+    }
+
+    private List<SparseConcept> allGreaters(int index, List<SparseConcept> concepts, PostingLists conceptsByEntity) {
+        int[] extents = concepts.get(index).getExtentsIds();
+        List<SparseConcept> allGreaters = Lists.newArrayList();
+        if (extents.length == 0) {
+            for (int i = 0; i < concepts.size(); i++) {
+                if (i != index) {
+                    allGreaters.add(concepts.get(i));
+                }
+            }
+        } else {
+            for (int i : conceptsByEntity.intersect(extents)) {
+                if (i != index) {
+                    allGreaters.add(concepts.get(i));
+                }
+            }
+        }
+        return allGreaters;
+    }
+
+    private List<SparseConcept> selectSmallest(List<SparseConcept> concepts) {
+        List<SparseConcept> smallests = Lists.newArrayList();
+        concepts.forEach(concept -> push(concept, smallests));
+        return smallests;
+    }
+
+    private void push(SparseConcept concept, List<SparseConcept> smallests) {
+        for (SparseConcept current : smallests) {
+            if (current.isSmallerThan(concept)) {
+                return;
+            }
+        }
+        smallests.removeIf(current -> concept.isSmallerThan(current));
+        smallests.add(concept);
+    }
+
+    @Override
+    public Set<Concept> getConcepts() {
+        return this.concepts;
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+
+package fr.labri.mocss.algo.fca;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Variable-length integers of the binary formats: seven bits per byte, the high bit telling whether more bytes follow
+final class VarInts {
+
+    static void write(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            output.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    static int read(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    // Sorted values are written as their differences
+    static void writeSorted(DataOutputStream output, int[] values) throws IOException {
+        write(output, values.length);
+        int previous = 0;
+        for (int value : values) {
+            write(output, value - previous);
+            previous = value;
+        }
+    }
+
+    static int[] readSorted(DataInputStream input) throws IOException {
+        int[] values = new int[read(input)];
+        int previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = previous + read(input);
+            previous = values[i];
+        }
+        return values;
+    }
+
+    static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        write(output, bytes.length);
+        output.write(bytes);
+    }
+
+    static byte[] readBytes(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[read(input)];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        writeBytes(output, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readString(DataInputStream input) throws IOException {
+        return new String(readBytes(input), StandardCharsets.UTF_8);
+    }
+
+    private VarInts() {}
+
+}
@@ -29,35 +29,20 @@ public abstract class FilteringNodesAlgorithm {
 
     public void filter(Lattice lattice) {
         Consumer<Node> handleNode = node -> {
-            Set<Node> parents = node.getParents();
-            Set<Node> children = node.getChildren();
             if (node.getSelectors().isEmpty()) {
+                Set<Node> parents = node.getParents();
+                Set<Node> children = node.getChildren();
+                lattice.removeNode(node);
                 parents.forEach(parent -> {
-                    boolean removed = parent.getChildren().remove(node);
-                    assert removed;
+                    children.forEach(child -> {
+                        if (!lattice.isAncestor(parent, child)) {
+                            lattice.addEdge(parent, child);
+                        }
+                    });
                 });
-                children.forEach(child -> {
-                    boolean removed = child.getParents().remove(node);
-                    assert removed;
-                });
-                boolean removed = lattice.getNodes().remove(node);
-                assert removed;
             } else {
-                children.forEach(child -> {
-                    boolean removed = child.getParents().remove(node);
-                    assert removed;
-                });
-                node.getChildren().clear();
+                lattice.removeChildren(node);
             }
-            parents.forEach(parent -> {
-                children.forEach(child -> {
-                    Set<Node> descendants = parent.getAllChildren();
-                    if (!descendants.contains(child)) {
-                        parent.getChildren().add(child);
-                        child.getParents().add(parent);
-                    }
-                });
-            });
         };
 
         lattice.topologicalOrder().forEach(node -> {
@@ -21,7 +21,6 @@ package fr.labri.mocss.algo.filters;
 
 import fr.labri.mocss.Config;
 import fr.labri.mocss.algo.Node;
-import fr.labri.mocss.model.DeclarationAbstract;
 
 public class ThresholdsBasedFiltering extends FilteringNodesAlgorithm {
 
@@ -29,9 +28,7 @@ public class ThresholdsBasedFiltering extends FilteringNodesAlgorithm {
     protected boolean isValidNode(Node node) {
         int childrenNb = node.getChildren().size();
         long declarationsNb = node.getSimplifiedDeclarations().size();
-        long parametersNb = node.getDeclarations().stream()
-                .filter(declaration -> declaration instanceof DeclarationAbstract)
-                .count();
+        int parametersNb = node.getAbstractDeclarationsNb();
         if ((childrenNb > 0 && childrenNb < Config.getInstance().childrenMinNb())
                 || declarationsNb < Config.getInstance().declarationsMinNb()
                 || parametersNb > Config.getInstance().parametersMaxNb()) {
@@ -313,6 +313,11 @@ public enum CSSProperties {
         return true;
     }
 
+    public static CSSPropertyGroups groupOf(String propertyName) {
+        CSSProperties cssProperty = getCSSProperty(propertyName);
+        return cssProperty != null ? cssProperty.getGroup() : null;
+    }
+
     private static CSSProperties getCSSProperty(String propertyName) {
         for (CSSProperties cssProperty : CSSProperties.values()) {
             if (cssProperty.getName().equals(propertyName)) {
@@ -23,12 +23,17 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.vaadin.sass.internal.ScssStylesheet;
 import fr.labri.mocss.algo.CssToSsl;
+import fr.labri.mocss.algo.filters.FilteringNodesAlgorithm;
+import fr.labri.mocss.algo.filters.GroupsBasedFiltering;
 import fr.labri.mocss.algo.filters.ThresholdsBasedFiltering;
 import fr.labri.mocss.io.IoUtils;
 import fr.labri.mocss.io.SassWriterDebug;
 import fr.labri.mocss.io.SslWriter;
+import fr.labri.mocss.model.Declaration;
 import fr.labri.mocss.model.DeclarationConcrete;
+import fr.labri.mocss.model.Property;
 import fr.labri.mocss.model.Selector;
+import fr.labri.mocss.model.css.CSSProperties;
 import fr.labri.mocss.model.css.CssRuleset;
 import fr.labri.mocss.model.ssl.SslMixin;
 import fr.labri.mocss.model.ssl.SslRuleset;
@@ -38,23 +43,35 @@ import fr.labri.mocss.parser.css.CssParsingException;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class GenerationValidityTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private Config config;
+    private int parametersMaxNb;
     private File sassGeneratedFile;
     private File cssGeneratedFile;
 
@@ -69,6 +86,7 @@ public class GenerationValidityTest {
         this.config.setDebug(true);
         this.config.setInputFile(cssInputFile);
         this.config.setOutputFile(this.sassGeneratedFile);
+        this.parametersMaxNb = this.config.parametersMaxNb();
     }
 
     @Before
@@ -80,6 +98,142 @@ public class GenerationValidityTest {
 
     @Test
     public void test() {
+        assertValidGeneration(Lists.newArrayList(new ThresholdsBasedFiltering()));
+    }
+
+    @Test
+    public void groupsPartition() throws IOException {
+        String font = "font-family: serif; font-style: italic; font-weight: bold;";
+        String background = "background-color: gray; background-image: none; background-repeat: no-repeat;";
+        useInputFile(
+                ".a { " + font + " " + background + " padding: 1px; }",
+                ".b { " + font + " " + background + " padding: 2px; }",
+                ".c { " + font + " " + background + " margin: 0; }",
+                ".d { font-style: normal; margin: 0; }"
+        );
+        this.config.setGroupsFilter(true);
+        this.config.setGroupsPartition(true);
+
+        // The fonts and the backgrounds of the same rulesets are factorized in two mixins, one per group
+        List<SslMixin> mixins = assertValidGeneration(
+                Lists.newArrayList(new GroupsBasedFiltering(), new ThresholdsBasedFiltering())).getLeft();
+        Set<String> properties = Sets.newHashSet();
+        mixins.forEach(mixin -> {
+            Set<String> mixinProperties = mixin.getDeclarations().stream()
+                    .map(Declaration::getProperty)
+                    .collect(Collectors.toSet());
+            assertTrue(CSSProperties.belongToSameGroup(mixinProperties));
+            properties.addAll(mixinProperties);
+        });
+        assertTrue(properties.containsAll(Arrays.asList("font-family", "background-color")));
+    }
+
+    @Test
+    public void variantsMatchSeparateComputations() throws Exception {
+        String font = "font-family: serif; font-style: italic; font-weight: bold;";
+        String background = "background-color: gray; background-image: none; background-repeat: no-repeat;";
+        useInputFile(
+                ".a { " + font + " " + background + " padding: 1px; }",
+                ".b { " + font + " " + background + " padding: 2px; }",
+                ".c { " + font + " " + background + " margin: 0; }",
+                ".d { font-style: normal; margin: 0; }"
+        );
+        CssParser cssParser = new Css3Parser();
+        cssParser.parse(this.config.inputFile());
+        cssParser.removeDuplicates();
+        List<List<FilteringNodesAlgorithm>> variants = Arrays.asList(
+                Lists.newArrayList(new ThresholdsBasedFiltering()),
+                Lists.newArrayList(new GroupsBasedFiltering(), new ThresholdsBasedFiltering()));
+
+        // Filtering copies of the same lattices gives the statements of separate computations
+        List<Pair<List<SslMixin>, List<SslRuleset>>> statements =
+                CssToSsl.computeVariants(cssParser.getRulesets(), variants);
+        assertEquals(variants.size(), statements.size());
+        for (int i = 0; i < variants.size(); i++) {
+            assertEquals(sassCode(CssToSsl.compute(cssParser.getRulesets(), variants.get(i))),
+                    sassCode(statements.get(i)));
+        }
+    }
+
+    @Test
+    public void singleValuedPropertyIsNotAParameter() throws IOException {
+        String font = "font-family: serif; font-style: italic; font-weight: bold;";
+        useInputFile(
+                ".a { color: red; " + font + " margin: 1px; }",
+                ".b { color: red; " + font + " margin: 2px; }",
+                ".c { color: red; " + font + " margin: 3px; }",
+                ".d { color: red; padding: 0; }"
+        );
+
+        List<SslMixin> mixins = assertValidGeneration(Lists.newArrayList(new ThresholdsBasedFiltering())).getLeft();
+        List<String> parameters = mixins.stream()
+                .flatMap(mixin -> mixin.getParameters().stream())
+                .map(Property::getProperty)
+                .collect(Collectors.toList());
+        assertEquals(Collections.singletonList("margin"), parameters);
+    }
+
+    @Test
+    public void noParameters() throws IOException {
+        String font = "font-family: serif; font-style: italic; font-weight: bold;";
+        useInputFile(
+                ".a { color: red; " + font + " margin: 1px; }",
+                ".b { color: blue; " + font + " margin: 2px; }",
+                ".c { color: red; " + font + " margin: 3px; }"
+        );
+        this.config.setParametersMaxNb(0);
+
+        List<SslMixin> mixins = assertValidGeneration(Lists.newArrayList(new ThresholdsBasedFiltering())).getLeft();
+        assertFalse(mixins.isEmpty());
+        assertTrue(mixins.stream().noneMatch(SslMixin::hasParameters));
+    }
+
+    @Test
+    public void outOfCoreWithSmallHeap() throws Exception {
+        // Rulesets drawing their declarations from a few values of a few properties, forming a single component
+        List<String> properties = Arrays.asList("color", "margin", "padding", "font-size", "font-weight",
+                "text-align", "border", "width", "height", "display");
+        Random random = new Random(5);
+        List<String> lines = Lists.newArrayList();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder ruleset = new StringBuilder(".r" + i + " {");
+            properties.stream().filter(property -> random.nextDouble() < 0.6).forEach(property ->
+                    ruleset.append(" ").append(property).append(": v").append(random.nextInt(6)).append(";"));
+            lines.add(ruleset.append(" }").toString());
+        }
+        useInputFile(lines.toArray(new String[lines.size()]));
+
+        // The whole generation runs in a JVM with a small heap, the concepts being ordered in mapped files
+        File log = this.folder.newFile("out-of-core.log");
+        Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").toString(),
+                "-Xmx48m", "-cp", System.getProperty("java.class.path"), App.class.getName(),
+                "-i", this.config.inputFile().toString(), "-o", this.sassGeneratedFile.toString(),
+                "--out-of-core", this.folder.newFolder().toString())
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        assertEquals(new String(Files.readAllBytes(log.toPath())), 0, process.waitFor());
+
+        CssParser cssParserInputFile = new Css3Parser();
+        cssParserInputFile.parse(this.config.inputFile());
+        cssParserInputFile.removeDuplicates();
+        assertValidGeneratedCode(cssParserInputFile);
+    }
+
+    private String sassCode(Pair<List<SslMixin>, List<SslRuleset>> statements) throws IOException {
+        File file = this.folder.newFile();
+        new SassWriterDebug().writeGeneratedCode(statements, file);
+        return new String(Files.readAllBytes(file.toPath()));
+    }
+
+    private void useInputFile(String... lines) throws IOException {
+        File cssInputFile = this.folder.newFile("input.css");
+        Files.write(cssInputFile.toPath(), Arrays.asList(lines));
+        this.config.setInputFile(cssInputFile);
+    }
+
+    private Pair<List<SslMixin>, List<SslRuleset>> assertValidGeneration(
+            List<FilteringNodesAlgorithm> filteringAlgorithms) {
         /*
          * Read initial css code
          */
@@ -97,8 +251,7 @@ public class GenerationValidityTest {
          */
         Pair<List<SslMixin>, List<SslRuleset>> statements = null;
         try {
-            statements = CssToSsl.compute(cssParserInputFile.getRulesets(),
-                    Lists.newArrayList(new ThresholdsBasedFiltering()));
+            statements = CssToSsl.compute(cssParserInputFile.getRulesets(), filteringAlgorithms);
         } catch (Exception e) {
             IoUtils.printErrorAndExit(e);
         }
@@ -114,7 +267,11 @@ public class GenerationValidityTest {
             IoUtils.printErrorAndExit(e);
         }
 
+        assertValidGeneratedCode(cssParserInputFile);
+        return statements;
+    }
 
+    private void assertValidGeneratedCode(CssParser cssParserInputFile) {
         /*
          * Generate css code from generated sass code
          */
@@ -223,6 +380,9 @@ public class GenerationValidityTest {
     public void after() {
         this.cssGeneratedFile.delete();
         this.sassGeneratedFile.delete();
+        this.config.setGroupsFilter(false);
+        this.config.setGroupsPartition(false);
+        this.config.setParametersMaxNb(this.parametersMaxNb);
     }
 
 }
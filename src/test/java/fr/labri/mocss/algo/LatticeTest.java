@@ -0,0 +1,264 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import fr.labri.mocss.algo.filters.FilteringNodesAlgorithm;
+import fr.labri.mocss.model.Declaration;
+import fr.labri.mocss.model.DeclarationAbstract;
+import fr.labri.mocss.model.DeclarationConcrete;
+import fr.labri.mocss.model.Position;
+import fr.labri.mocss.model.Property;
+import fr.labri.mocss.model.ValueAbstract;
+import fr.labri.mocss.model.ValueConcrete;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatticeTest {
+
+    @Test
+    public void topologicalOrderOfDeepLattice() {
+        Set<Node> nodes = Sets.newHashSet();
+        Node parent = null;
+        for (int i = 0; i < 100000; i++) {
+            Node node = new Node(i, Sets.newHashSet(), Sets.newHashSet(), Sets.newHashSet());
+            if (parent != null) {
+                node.getParents().add(parent);
+                parent.getChildren().add(node);
+            }
+            nodes.add(node);
+            parent = node;
+        }
+
+        List<Node> order = new Lattice(nodes).topologicalOrder();
+        assertEquals(nodes.size(), order.size());
+        Map<Node, Integer> positions = Maps.newHashMap();
+        order.forEach(node -> positions.put(node, positions.size()));
+        nodes.forEach(node -> assertTrue(node.getParents().stream()
+                .allMatch(nodeParent -> positions.get(nodeParent) < positions.get(node))));
+    }
+
+    @Test
+    public void reachabilityAndOrderFollowEdgeChanges() {
+        Random random = new Random(42);
+        List<Node> nodes = Lists.newArrayList();
+        for (int i = 0; i < 200; i++) {
+            nodes.add(new Node(i, Sets.newHashSet(), Sets.newHashSet(), Sets.newHashSet()));
+        }
+        Lattice lattice = new Lattice(Sets.newHashSet(nodes));
+        for (int i = 0; i < 600; i++) {
+            int parent = random.nextInt(nodes.size() - 1);
+            lattice.addEdge(nodes.get(parent), nodes.get(parent + 1 + random.nextInt(nodes.size() - parent - 1)));
+        }
+        assertReachability(lattice);
+
+        for (int i = 0; i < 300; i++) {
+            List<Node> remainingNodes = Lists.newArrayList(lattice.getNodes());
+            Node node = remainingNodes.get(random.nextInt(remainingNodes.size()));
+            int operation = random.nextInt(4);
+            if (operation == 0 && !node.getChildren().isEmpty()) {
+                lattice.removeEdge(node, node.getChildren().iterator().next());
+            } else if (operation == 1) {
+                lattice.removeChildren(node);
+            } else if (operation == 2 && i % 3 == 0) {
+                lattice.removeNode(node);
+            } else {
+                Node other = remainingNodes.get(random.nextInt(remainingNodes.size()));
+                if (!lattice.isAncestor(other, node)) {
+                    lattice.addEdge(node, other);
+                }
+            }
+            assertReachability(lattice);
+        }
+    }
+
+    @Test
+    public void ownDeclarationsFollowChanges() {
+        Property color = new Property("color");
+        Property margin = new Property("margin");
+        Declaration red = new DeclarationConcrete(color, new ValueConcrete("red"), new Position(1, 1));
+        Declaration zero = new DeclarationConcrete(margin, new ValueConcrete("0"), new Position(2, 1));
+        Declaration anyMargin = new DeclarationAbstract(margin, new ValueAbstract("margin"));
+        Node top = new Node(0, Sets.newHashSet(), Sets.newHashSet(), Sets.newHashSet(red));
+        Node middle = new Node(1, Sets.newHashSet(), Sets.newHashSet(), Sets.newHashSet(red, anyMargin));
+        Node bottom = new Node(2, Sets.newHashSet(), Sets.newHashSet(), Sets.newHashSet(red, anyMargin, zero));
+        Lattice lattice = new Lattice(Sets.newHashSet(top, middle, bottom));
+        lattice.addEdge(top, middle);
+        lattice.addEdge(middle, bottom);
+        assertEquals(Sets.newHashSet(anyMargin), middle.getSimplifiedDeclarations());
+        assertEquals(Sets.newHashSet(margin), middle.getParameters());
+        assertEquals(Sets.newHashSet(zero), bottom.getSimplifiedConcreteDeclarations());
+        assertEquals(1, bottom.getAbstractDeclarationsNb());
+        assertTrue(bottom.getParameters().isEmpty());
+
+        middle.getDeclarations().remove(anyMargin);
+        assertEquals(Sets.newHashSet(anyMargin, zero), bottom.getSimplifiedDeclarations());
+        assertTrue(middle.getParameters().isEmpty());
+
+        lattice.removeEdge(top, middle);
+        assertEquals(Sets.newHashSet(red), middle.getSimplifiedDeclarations());
+        lattice.removeNode(middle);
+        lattice.addEdge(top, bottom);
+        assertEquals(Sets.newHashSet(anyMargin, zero), bottom.getSimplifiedDeclarations());
+        assertEquals(Sets.newHashSet(red), top.getSimplifiedConcreteDeclarations());
+    }
+
+    @Test
+    public void copiesShareLatticeUntilChanged() {
+        FilteringNodesAlgorithm filter = new FilteringNodesAlgorithm() {
+            @Override
+            protected boolean isValidNode(Node node) {
+                return node.getIdentifier() % 3 != 0;
+            }
+        };
+        Lattice lattice = randomLattice(new Random(7));
+        Lattice variant = lattice.copy();
+        filter.filter(variant);
+        lattice.removeChildren(lattice.getNodes().iterator().next());
+        Lattice otherVariant = variant.copy();
+        otherVariant.removeNode(otherVariant.getNodes().iterator().next());
+
+        Lattice expectedLattice = randomLattice(new Random(7));
+        Lattice expectedVariant = randomLattice(new Random(7));
+        filter.filter(expectedVariant);
+        expectedLattice.removeChildren(expectedLattice.getNodes().iterator().next());
+        assertEquals(edges(expectedLattice), edges(lattice));
+        assertEquals(edges(expectedVariant), edges(variant));
+        assertTrue(variant.getNodes().stream()
+                .noneMatch(node -> lattice.getNodes().stream().anyMatch(other -> other == node)));
+        assertEquals(variant.getNodes().size() - 1, otherVariant.getNodes().size());
+    }
+
+    @Test
+    public void builderStoresLinksOfIndexes() {
+        Random random = new Random(11);
+        Lattice expected = randomLattice(random);
+        Lattice.Builder builder = new Lattice.Builder();
+        List<Node> nodes = Lists.newArrayList(expected.getNodes());
+        nodes.sort(Comparator.comparingInt(Node::getIdentifier));
+        nodes.forEach(node -> builder.addNode(node.getIdentifier(), Sets.newHashSet(node.getSelectors()),
+                Sets.newHashSet(node.getallSelectors()), Sets.newHashSet(node.getDeclarations())));
+        nodes.forEach(node -> node.getParents().forEach(parent -> {
+            builder.addEdge(parent.getIdentifier(), node.getIdentifier());
+            builder.addEdge(parent.getIdentifier(), node.getIdentifier());
+        }));
+
+        Lattice lattice = builder.build();
+        assertEquals(edges(expected), edges(lattice));
+        assertReachability(lattice);
+    }
+
+    @Test
+    public void nodeSetsAreViewsOfStore() {
+        Property color = new Property("color");
+        Declaration red = new DeclarationConcrete(color, new ValueConcrete("red"), new Position(1, 1));
+        Node top = new Node(0, Sets.newHashSet(), Sets.newHashSet(), Sets.newHashSet(red));
+        Node bottom = new Node(1, Sets.newHashSet(), Sets.newHashSet(), Sets.newHashSet(red));
+        Node other = new Node(2, Sets.newHashSet(), Sets.newHashSet(), Sets.newHashSet());
+        top.getChildren().add(bottom);
+        bottom.getParents().add(top);
+        Set<Node> children = top.getChildren();
+        Lattice lattice = new Lattice(Sets.newHashSet(top, bottom, other));
+        Lattice copy = lattice.copy();
+
+        // Adding or removing a node only changes one side of a link
+        top.getChildren().add(other);
+        assertTrue(top.getChildren().contains(other));
+        assertTrue(other.getParents().isEmpty());
+        bottom.getParents().remove(top);
+        assertTrue(top.getChildren().contains(bottom));
+        assertTrue(bottom.getParents().isEmpty());
+
+        // Changes through the views are seen by the lattice and not by its copy
+        Iterator<Declaration> iterator = top.getDeclarations().iterator();
+        iterator.next();
+        iterator.remove();
+        assertTrue(top.getDeclarations().isEmpty());
+        assertEquals(Sets.newHashSet(red), bottom.getSimplifiedDeclarations());
+        other.getParents().add(top);
+        assertEquals(Sets.newHashSet(top, other), lattice.getAllParents(other));
+        assertEquals(Sets.newHashSet(bottom), children);
+        Node copiedTop = copy.getNodes().stream().filter(node -> node.getIdentifier() == 0).findFirst().get();
+        assertEquals(Sets.newHashSet(red), copiedTop.getDeclarations());
+        assertEquals(1, copiedTop.getChildren().size());
+        assertEquals(1, copiedTop.getChildren().iterator().next().getParents().size());
+    }
+
+    private static Lattice randomLattice(Random random) {
+        List<Node> nodes = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            nodes.add(new Node(i, Sets.newHashSet(), Sets.newHashSet(), Sets.newHashSet()));
+        }
+        for (int i = 0; i < 300; i++) {
+            int parent = random.nextInt(nodes.size() - 1);
+            Node child = nodes.get(parent + 1 + random.nextInt(nodes.size() - parent - 1));
+            nodes.get(parent).getChildren().add(child);
+            child.getParents().add(nodes.get(parent));
+        }
+        return new Lattice(Sets.newHashSet(nodes));
+    }
+
+    private static Set<List<Integer>> edges(Lattice lattice) {
+        Set<List<Integer>> result = Sets.newHashSet();
+        lattice.getNodes().forEach(node -> {
+            node.getChildren().forEach(child -> result.add(Lists.newArrayList(node.getIdentifier(), child.getIdentifier())));
+            node.getParents().forEach(parent -> result.add(Lists.newArrayList(-parent.getIdentifier() - 1, node.getIdentifier())));
+        });
+        return result;
+    }
+
+    private static void assertReachability(Lattice lattice) {
+        List<Node> order = lattice.topologicalOrder();
+        assertEquals(lattice.getNodes(), Sets.newHashSet(order));
+        Map<Node, Integer> positions = Maps.newHashMap();
+        order.forEach(node -> positions.put(node, positions.size()));
+        lattice.getNodes().forEach(node -> {
+            assertTrue(node.getParents().stream().allMatch(parent -> positions.get(parent) < positions.get(node)));
+            assertEquals(walk(node, true), lattice.getAllParents(node));
+            assertEquals(walk(node, false), lattice.getAllChildren(node));
+        });
+    }
+
+    private static Set<Node> walk(Node node, boolean upwards) {
+        Set<Node> result = Sets.newHashSet(node);
+        Deque<Node> nodes = new ArrayDeque<>(result);
+        while (!nodes.isEmpty()) {
+            Node next = nodes.pop();
+            (upwards ? next.getParents() : next.getChildren()).stream()
+                    .filter(result::add)
+                    .forEach(nodes::push);
+        }
+        return result;
+    }
+
+}
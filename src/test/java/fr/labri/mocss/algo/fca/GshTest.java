@@ -0,0 +1,417 @@
+/*
+ * This file is part of Mocss.
+ *
+ * Mocss is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Mocss is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mocss.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2015 Alan Charpentier <alan.charpentier@gmail.com>
+ */
+
+package fr.labri.mocss.algo.fca;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import fr.labri.mocss.model.Property;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GshTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Context randomContext(long seed, int entitiesNb, int attributesNb, double density) {
+        Random random = new Random(seed);
+        Context context = new Context();
+        for (int entity = 0; entity < entitiesNb; entity++) {
+            FcaElement fcaEntity = new FcaElement(new Property("e" + entity));
+            context.addEntity(fcaEntity);
+            for (int attribute = 0; attribute < attributesNb; attribute++) {
+                if (random.nextDouble() < density) {
+                    FcaElement fcaAttribute = new FcaElement(new Property("a" + attribute));
+                    context.addAttribute(fcaAttribute);
+                    context.addRelation(fcaEntity, fcaAttribute);
+                }
+            }
+        }
+        return context;
+    }
+
+    private static Set<String> identifiers(Set<FcaElement> elements) {
+        return elements.stream().map(FcaElement::getIdentifier).collect(Collectors.toSet());
+    }
+
+    // Describes a poset independently of its representation: concepts, simplified extents and cover edges
+    private static Pair<Map<Set<String>, Pair<Set<String>, Set<String>>>, Set<Pair<Set<String>, Set<String>>>> describe(Set<Concept> concepts) {
+        return describe(concepts, UnaryOperator.identity(), (extents, intents) -> intents);
+    }
+
+    private static Pair<Map<Set<String>, Pair<Set<String>, Set<String>>>, Set<Pair<Set<String>, Set<String>>>> describe(
+            Set<Concept> concepts, UnaryOperator<Set<FcaElement>> entities,
+            BinaryOperator<Set<FcaElement>> attributes) {
+        Map<Set<String>, Pair<Set<String>, Set<String>>> nodes = Maps.newHashMap();
+        Set<Pair<Set<String>, Set<String>>> edges = Sets.newHashSet();
+        concepts.forEach(concept -> {
+            Set<FcaElement> expandedExtents = entities.apply(concept.getExtents());
+            Set<String> extents = identifiers(expandedExtents);
+            nodes.put(extents, new ImmutablePair<>(identifiers(attributes.apply(expandedExtents, concept.getIntents())),
+                    identifiers(entities.apply(concept.getSimplifiedExtents()))));
+            concept.getParents().forEach(parent ->
+                    edges.add(new ImmutablePair<>(identifiers(entities.apply(parent.getExtents())), extents)));
+        });
+        return new ImmutablePair<>(nodes, edges);
+    }
+
+    private static Set<Concept> gsh(Context context) {
+        Gsh gsh = new Gsh(context);
+        gsh.compute();
+        return gsh.getConcepts();
+    }
+
+    // Every algorithm, sequential or parallel, gives the poset of the reference algorithm on contexts of any shape
+    @Test
+    public void algorithmsMatchGsh() {
+        Map<String, BiFunction<Context, ForkJoinPool, GshAlgorithm>> algorithms = Maps.newLinkedHashMap();
+        algorithms.put("gsh", Gsh::new);
+        algorithms.put("bitsets", (context, pool) -> new BitSetGsh(new BitSetContext(context), pool));
+        algorithms.put("sparse", (context, pool) -> new SparseGsh(new SparseContext(context), pool));
+        algorithms.put("hermes", (context, pool) -> new HermesGsh(new BitSetContext(context), pool));
+        algorithms.put("mapped", (context, pool) ->
+                new MappedGsh(new MappedContext(context, this.folder.getRoot()), pool));
+        Function<Set<Concept>, Map<Set<String>, Set<String>>> simplifiedIntents = concepts -> {
+            Map<Set<String>, Set<String>> result = Maps.newHashMap();
+            concepts.forEach(concept ->
+                    result.put(identifiers(concept.getExtents()), identifiers(concept.getSimplifiedIntents())));
+            return result;
+        };
+
+        ForkJoinPool parallelPool = new ForkJoinPool(4);
+        try {
+            for (ForkJoinPool pool : Arrays.asList(null, parallelPool)) {
+                for (long seed = 0; seed < 5; seed++) {
+                    List<Context> contexts = Arrays.asList(randomContext(seed, 40, 70, 0.1),
+                            randomContext(seed, 60, 120, 0.04), randomContext(seed, 130, 90, 0.05));
+                    for (Context context : contexts) {
+                        Set<Concept> concepts = gsh(context);
+                        algorithms.forEach((name, algorithm) -> {
+                            GshAlgorithm gsh = algorithm.apply(context, pool);
+                            gsh.compute();
+                            String message = name + (pool == null ? "" : ", parallel");
+                            assertEquals(message, concepts.size(), gsh.getConcepts().size());
+                            assertTrue(message, GshCheck.isSamePoset(gsh.getConcepts(), concepts));
+                            assertEquals(message, describe(concepts), describe(gsh.getConcepts()));
+                            assertEquals(message, simplifiedIntents.apply(concepts),
+                                    simplifiedIntents.apply(gsh.getConcepts()));
+                        });
+                    }
+                }
+            }
+        } finally {
+            parallelPool.shutdown();
+        }
+    }
+
+    @Test
+    public void timedOutHermesGshKeepsObjectConcepts() {
+        for (long seed = 0; seed < 10; seed++) {
+            Context context = randomContext(seed, 50, 90, 0.08);
+            HermesGsh hermesGsh = new HermesGsh(new BitSetContext(context), null, () -> true);
+            hermesGsh.compute();
+
+            assertEquals(describe(linkNaively(objectConcepts(context, Collections.emptySet()))),
+                    describe(hermesGsh.getConcepts()));
+            assertEquals(gsh(context).size(), hermesGsh.candidatesNb());
+        }
+    }
+
+    @Test
+    public void boundedHermesGshKeepsBestAttributeConcepts() {
+        ToLongFunction<Concept> score = concept -> concept.getExtents().size() * 100 + concept.getIntents().size();
+        for (long seed = 0; seed < 10; seed++) {
+            Context context = randomContext(seed, 50, 90, 0.08);
+            HermesGsh hermesGsh = new HermesGsh(new BitSetContext(context), null, () -> false, 10, score);
+            hermesGsh.compute();
+
+            Set<Set<FcaElement>> objectExtents = objectConcepts(context, Collections.emptySet()).stream()
+                    .map(Concept::getExtents).collect(Collectors.toSet());
+            Set<Set<FcaElement>> keptExtents = hermesGsh.getConcepts().stream()
+                    .map(Concept::getExtents).filter(extents -> !objectExtents.contains(extents))
+                    .collect(Collectors.toSet());
+            assertEquals(10, keptExtents.size());
+            long worstKeptScore = hermesGsh.getConcepts().stream()
+                    .filter(concept -> keptExtents.contains(concept.getExtents()))
+                    .mapToLong(score).min().getAsLong();
+            assertTrue(gsh(context).stream()
+                    .filter(concept -> !objectExtents.contains(concept.getExtents()))
+                    .filter(concept -> !keptExtents.contains(concept.getExtents()))
+                    .allMatch(concept -> score.applyAsLong(concept) <= worstKeptScore));
+            assertEquals(describe(linkNaively(objectConcepts(context, keptExtents))),
+                    describe(hermesGsh.getConcepts()));
+            assertEquals(gsh(context).size(), hermesGsh.candidatesNb());
+        }
+    }
+
+    @Test
+    public void posetSnapshotRestoresPosets() throws IOException {
+        PosetSnapshot snapshot = new PosetSnapshot(HashCode.fromInt(42));
+        for (long seed = 0; seed < 5; seed++) {
+            Context context = randomContext(seed, 50, 90, 0.08);
+            snapshot.put(context, gsh(context));
+        }
+        File file = this.folder.newFile();
+        snapshot.write(file);
+
+        PosetSnapshot readSnapshot = PosetSnapshot.read(file);
+        assertEquals(HashCode.fromInt(42), readSnapshot.getKey());
+        for (long seed = 0; seed < 5; seed++) {
+            Context context = randomContext(seed, 50, 90, 0.08);
+            assertEquals(describe(gsh(context)), describe(readSnapshot.get(context)));
+        }
+        assertNull(readSnapshot.get(randomContext(5, 50, 90, 0.08)));
+    }
+
+    @Test
+    public void exportedContextsGiveSameGsh() throws IOException {
+        for (long seed = 0; seed < 5; seed++) {
+            Context context = randomContext(seed, 50, 90, 0.08);
+            context.addEntity(new FcaElement(new Property("empty")));
+            for (String name : Arrays.asList("context.cxt", "context.bin")) {
+                File file = new File(this.folder.getRoot(), name);
+                ContextFormats.write(context, file);
+                Context readContext = ContextFormats.read(file);
+                assertEquals(context, readContext);
+                assertEquals(describe(gsh(context)), describe(gsh(readContext)));
+            }
+        }
+
+        Context context = ContextFormats.readBurmeister(new StringReader("B\nsample\n2\n3\n\ne1\ne2\na1\na2\na3\nX.X\n.XX\n"));
+        assertEquals(Sets.newHashSet("a1", "a3"), identifiers(context.getAttributes(new FcaElement(new NamedElement("e1")))));
+        assertEquals(Sets.newHashSet("e1", "e2"), identifiers(context.getEntities(new FcaElement(new NamedElement("a3")))));
+
+        // Elements are told apart by their names
+        try {
+            ContextFormats.readBurmeister(new StringReader("B\n\n2\n2\n\ne1\ne2\na1\na1\nX.\n.X\n"));
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("a1"));
+        }
+    }
+
+    @Test
+    public void executionPlanFollowsAvailableMemory() {
+        Context context = randomContext(0, 2000, 2000, 0.002);
+        assertEquals(ExecutionPlan.Strategy.hermes, ExecutionPlan.of(context, 1L << 30).getStrategy());
+        assertEquals(ExecutionPlan.Strategy.sparse, ExecutionPlan.of(context, 1L << 22).getStrategy());
+        assertEquals(ExecutionPlan.Strategy.outOfCore, ExecutionPlan.of(context, 1L << 10).getStrategy());
+    }
+
+    @Test
+    public void componentsGshMatchesGsh() {
+        for (long seed = 0; seed < 10; seed++) {
+            // Disjoint blocks of entities and attributes, entities without attributes being in no block
+            Context context = new Context();
+            for (int block = 0; block < 4; block++) {
+                Context blockContext = randomContext(seed * 4 + block, 15, 20, 0.15);
+                String prefix = "b" + block;
+                blockContext.getEntities().stream()
+                        .filter(entity -> !blockContext.getAttributes(entity).isEmpty())
+                        .forEach(entity -> {
+                            FcaElement blockEntity = new FcaElement(new Property(prefix + entity.getIdentifier()));
+                            context.addEntity(blockEntity);
+                            blockContext.getAttributes(entity).forEach(attribute -> {
+                                FcaElement blockAttribute = new FcaElement(new Property(prefix + attribute.getIdentifier()));
+                                context.addAttribute(blockAttribute);
+                                context.addRelation(blockEntity, blockAttribute);
+                            });
+                        });
+            }
+            List<Context> components = new ContextComponents(context).getComponents();
+            assertTrue(components.size() >= 4);
+            Set<Concept> concepts = Sets.newHashSet();
+            components.forEach(component -> concepts.addAll(gsh(component)));
+            assertEquals(describe(gsh(context)), describe(concepts));
+
+            // The components share the relations of the context until one of them is changed
+            FcaElement entity = components.get(0).getEntities().iterator().next();
+            Set<FcaElement> attributes = Sets.newHashSet(context.getAttributes(entity));
+            components.get(0).setAttributes(entity, Collections.emptySet());
+            assertEquals(attributes, context.getAttributes(entity));
+            attributes.forEach(attribute -> assertTrue(context.getEntities(attribute).contains(entity)));
+        }
+    }
+
+    @Test
+    public void incrementalGshMatchesGsh() {
+        for (long seed = 0; seed < 5; seed++) {
+            Context context = randomContext(seed, 30, 40, 0.1);
+            Gsh incrementalGsh = new Gsh(context);
+            incrementalGsh.compute();
+
+            Random random = new Random(seed);
+            for (int update = 0; update < 30; update++) {
+                List<FcaElement> entities = Lists.newArrayList(context.getEntities());
+                FcaElement entity = entities.get(random.nextInt(entities.size()));
+                Set<FcaElement> attributes = Sets.newHashSet();
+                for (int attribute = 0; attribute < 45; attribute++) {
+                    if (random.nextDouble() < 0.1) {
+                        attributes.add(new FcaElement(new Property("a" + attribute)));
+                    }
+                }
+                switch (update % 3) {
+                    case 0:
+                        incrementalGsh.addEntity(new FcaElement(new Property("n" + update)), attributes);
+                        break;
+                    case 1:
+                        incrementalGsh.replaceEntity(entity, attributes);
+                        break;
+                    default:
+                        incrementalGsh.removeEntity(entity);
+                }
+                assertEquals(describe(gsh(context)), describe(incrementalGsh.getConcepts()));
+            }
+        }
+    }
+
+    // Concepts with at least extentsMinNb entities and some intents, and object concepts, linked naively
+    private static Set<Concept> icebergLattice(Context context, int extentsMinNb) {
+        List<FcaElement> entities = Lists.newArrayList(context.getEntities());
+        Set<Set<FcaElement>> allExtents = Sets.newHashSet();
+        for (int subset = 1; subset < 1 << entities.size(); subset++) {
+            Set<FcaElement> intents = Sets.newHashSet(context.getAttributes());
+            for (int entity = 0; entity < entities.size(); entity++) {
+                if ((subset & 1 << entity) != 0) {
+                    intents.retainAll(context.getAttributes(entities.get(entity)));
+                }
+            }
+            Set<FcaElement> extents = Sets.newHashSet(context.getEntities());
+            intents.forEach(attribute -> extents.retainAll(context.getEntities(attribute)));
+            if (!intents.isEmpty() && extents.size() >= extentsMinNb || Integer.bitCount(subset) == 1) {
+                allExtents.add(extents);
+            }
+        }
+
+        List<Concept> concepts = Lists.newArrayList();
+        allExtents.forEach(extents -> {
+            Set<FcaElement> intents = Sets.newHashSet(context.getAttributes());
+            extents.forEach(entity -> intents.retainAll(context.getAttributes(entity)));
+            concepts.add(new SetConcept(concepts.size(), extents, intents));
+        });
+        return linkNaively(concepts);
+    }
+
+    // Object concepts of a context, along with the concepts of the given extents
+    private static List<Concept> objectConcepts(Context context, Set<Set<FcaElement>> otherExtents) {
+        Set<Set<FcaElement>> allExtents = Sets.newHashSet(otherExtents);
+        context.getEntities().forEach(entity -> {
+            Set<FcaElement> extents = Sets.newHashSet(context.getEntities());
+            context.getAttributes(entity).forEach(attribute -> extents.retainAll(context.getEntities(attribute)));
+            allExtents.add(extents);
+        });
+        List<Concept> concepts = Lists.newArrayList();
+        allExtents.forEach(extents -> {
+            Set<FcaElement> intents = Sets.newHashSet(context.getAttributes());
+            extents.forEach(entity -> intents.retainAll(context.getAttributes(entity)));
+            concepts.add(new SetConcept(concepts.size(), extents, intents));
+        });
+        return concepts;
+    }
+
+    private static Set<Concept> linkNaively(List<Concept> concepts) {
+        concepts.forEach(concept -> concepts.stream()
+                .filter(parent -> parent != concept && parent.isGreaterThan(concept))
+                .filter(parent -> concepts.stream().noneMatch(between -> between != parent && between != concept
+                        && between.isGreaterThan(concept) && parent.isGreaterThan(between)))
+                .forEach(concept::addParent));
+        return Sets.newHashSet(concepts);
+    }
+
+    @Test
+    public void fcboLatticeMatchesClosures() {
+        ForkJoinPool parallelPool = new ForkJoinPool(4);
+        try {
+            for (ForkJoinPool pool : Arrays.asList(null, parallelPool)) {
+                for (long seed = 0; seed < 10; seed++) {
+                    Context context = randomContext(seed, 12, 40, 0.3);
+                    for (int extentsMinNb = 1; extentsMinNb <= 3; extentsMinNb++) {
+                        FcboLattice lattice = new FcboLattice(new BitSetContext(context), extentsMinNb, pool);
+                        lattice.compute();
+                        assertEquals(describe(icebergLattice(context, extentsMinNb)), describe(lattice.getConcepts()));
+                    }
+                }
+            }
+        } finally {
+            parallelPool.shutdown();
+        }
+    }
+
+    @Test
+    public void clarifiedGshMatchesGsh() {
+        for (long seed = 0; seed < 10; seed++) {
+            Context context = randomContext(seed, 60, 8, 0.3);
+            // Attributes sharing their entities with another one
+            Sets.newHashSet(context.getAttributes()).forEach(attribute -> {
+                FcaElement copy = new FcaElement(new Property(attribute.getIdentifier() + "'"));
+                context.addAttribute(copy);
+                Sets.newHashSet(context.getEntities(attribute)).forEach(entity -> context.addRelation(entity, copy));
+            });
+            ContextClarification clarification = new ContextClarification(context);
+            assertTrue(clarification.getContext().getEntities().size() < context.getEntities().size());
+            assertTrue(clarification.getContext().getAttributes().size() < context.getAttributes().size());
+            assertEquals(describe(gsh(context)),
+                    describe(gsh(clarification.getContext()), clarification::expandEntities,
+                            (extents, intents) -> clarification.expandAttributes(intents)));
+        }
+    }
+
+    @Test
+    public void prunedGshMatchesGsh() {
+        for (long seed = 0; seed < 10; seed++) {
+            Context context = randomContext(seed, 30, 200, 0.03);
+            ContextPruning pruning = new ContextPruning(context);
+            assertTrue(pruning.prunedAttributesNb() > 0);
+            assertEquals(context.getAttributes().size() - pruning.prunedAttributesNb(),
+                    pruning.getContext().getAttributes().size());
+            assertEquals(describe(gsh(context)),
+                    describe(gsh(pruning.getContext()), UnaryOperator.identity(), pruning::expandAttributes));
+        }
+    }
+
+}